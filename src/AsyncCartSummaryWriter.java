@@ -0,0 +1,412 @@
+//////////////// FILE HEADER (INCLUDE IN EVERY FILE) //////////////////////////
+//
+// Title: AsyncCartSummaryWriter.java
+///////////////////////////////////////////////////////////////////////////////
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class saves cart summaries to files in the background, so that persisting a cart does not
+ * block the caller on file I/O. It can be used from any number of threads.
+ *
+ * save() only copies the cart and queues it. Saves of the same file which are still queued are
+ * coalesced: only the most recent cart is written. A single writer thread takes all the queued
+ * carts at once and writes them as one group commit, after waiting up to the commit interval for
+ * more saves to join the group, unless the group is already full or a flush is waiting.
+ *
+ * flush() waits until every save requested before the call is written, and close() writes the
+ * queued carts and stops the writer; one of them should be called before the program ends. A cart
+ * is written once its summary is forced to the storage device and has atomically replaced the
+ * previous file, so a crash never leaves a truncated summary. Files which cannot be written are
+ * counted, and the message of the last error is kept.
+ *
+ * @author Marin Suzuki
+ */
+public class AsyncCartSummaryWriter {
+
+  private final long commitIntervalNanos; // time the writer waits for a group to fill
+  private final int maxGroupSize; // number of queued carts which starts a commit right away
+  private final Thread writer;
+
+  // carts queued for writing, keyed by file, in the order of their first queued save. Replaced by
+  // a new map at each commit. Only accessed while holding the lock of this writer, as are all the
+  // fields below.
+  private LinkedHashMap<File, Pending> queue = new LinkedHashMap<File, Pending>();
+  private long lastSequence; // sequence number of the last save queued
+  private long committedSequence; // every save up to this sequence number is written
+  private int flushWaiters; // number of threads waiting in flush()
+  private boolean closed;
+
+  // metrics
+  private long saves; // number of saves queued
+  private long coalescedSaves; // number of saves which replaced a queued cart
+  private long commits; // number of group commits
+  private long writtenCarts; // number of carts written
+  private long failedWrites; // number of carts which could not be written
+  private String lastError; // message of the last write error
+  private long totalLatencyNanos; // sum of the commit latencies of the carts written
+  private long maxLatencyNanos; // longest commit latency of a cart
+
+  /**
+   * A cart queued for writing
+   */
+  private static class Pending {
+    private String[] cart; // copy of the cart to write
+    private final long queuedNanos; // time of the first save since the file was last written
+
+    private Pending(String[] cart, long queuedNanos) {
+      this.cart = cart;
+      this.queuedNanos = queuedNanos;
+    }
+  }
+
+  /**
+   * Creates a writer and starts its writer thread. If commitIntervalMillis is negative or
+   * maxGroupSize is not positive, IllegalArgumentException will be thrown.
+   *
+   * @param commitIntervalMillis time in milliseconds the writer waits for more saves to join a
+   *                             group commit
+   * @param maxGroupSize         number of queued carts which starts a commit without waiting
+   * @throws java.lang.IllegalArgumentException with descriptive error message if
+   *                                            commitIntervalMillis is negative or maxGroupSize is
+   *                                            not positive
+   */
+  public AsyncCartSummaryWriter(long commitIntervalMillis, int maxGroupSize) {
+    // throws IllegalArgumentException with descriptive error message if invalid input
+    if (commitIntervalMillis < 0) {
+      throw new IllegalArgumentException(
+          "commitIntervalMillis should be more than or equal to zero");
+    }
+    if (maxGroupSize <= 0) {
+      throw new IllegalArgumentException("maxGroupSize should be more than zero");
+    }
+
+    this.commitIntervalNanos = TimeUnit.MILLISECONDS.toNanos(commitIntervalMillis); // saturates
+    this.maxGroupSize = maxGroupSize;
+    this.writer = new Thread(this::writeGroups, "cart-summary-writer");
+    this.writer.setDaemon(true);
+    this.writer.start();
+  }
+
+  /**
+   * Queues the summary of a cart to be saved to a file, in the format of saveCartSummary(). The
+   * cart is copied, so it can be changed as soon as this method returns. If size is less than
+   * zero or more than the length of cart, if one of the items is null, or if file is null,
+   * IllegalArgumentException will be thrown and nothing is queued. If this writer is closed,
+   * IllegalStateException will be thrown.
+   *
+   * @param cart an array of strings which contains the names of items in the cart
+   * @param size the number of items in the cart
+   * @param file the file to save the cart summary
+   * @throws java.lang.IllegalArgumentException with descriptive error message if size is less than
+   *                                            zero or more than the length of cart, an item is
+   *                                            null, or file is null
+   * @throws java.lang.IllegalStateException    with descriptive error message if this writer is
+   *                                            closed
+   */
+  public void save(String[] cart, int size, File file) {
+    // throws IllegalArgumentException with descriptive error message if invalid input
+    if (size < 0) {
+      throw new IllegalArgumentException("size should be more than or equal to zero");
+    }
+    if (size > cart.length) {
+      throw new IllegalArgumentException("size should not be more than the length of cart");
+    }
+    if (file == null) {
+      throw new IllegalArgumentException("file should not be null");
+    }
+
+    String[] copy = Arrays.copyOf(cart, size); // copied and checked outside of the lock
+    for (String item : copy) {
+      // throws IllegalArgumentException with descriptive error message if an item is null
+      if (item == null) {
+        throw new IllegalArgumentException("items of the cart should not be null");
+      }
+    }
+    synchronized (this) {
+      // throws IllegalStateException with descriptive error message if this writer is closed
+      if (closed) {
+        throw new IllegalStateException("writer is closed");
+      }
+
+      Pending pending = queue.get(file);
+      if (pending == null) {
+        queue.put(file, new Pending(copy, System.nanoTime()));
+        if (queue.size() == 1 || queue.size() >= maxGroupSize) {
+          notifyAll(); // wakes the writer
+        }
+      } else {
+        pending.cart = copy;
+        coalescedSaves++;
+      }
+      saves++;
+      lastSequence++;
+    }
+  }
+
+  /**
+   * Waits until every save requested before this call is written, or could not be written
+   *
+   * @throws InterruptedException if the calling thread is interrupted while waiting
+   */
+  public void flush() throws InterruptedException {
+    flush(Long.MAX_VALUE);
+  }
+
+  /**
+   * Waits until every save requested before this call is written, or could not be written, for at
+   * most the given time. The writer commits the queued carts right away instead of waiting for
+   * its group to fill.
+   *
+   * @param timeoutMillis maximum time to wait, in milliseconds
+   * @return true if every save requested before this call is written, and false if the time ran
+   *         out first
+   * @throws InterruptedException if the calling thread is interrupted while waiting
+   */
+  public synchronized boolean flush(long timeoutMillis) throws InterruptedException {
+    long target = lastSequence;
+    long start = System.nanoTime();
+    long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    flushWaiters++;
+    notifyAll(); // the writer stops waiting for its group to fill
+    try {
+      while (committedSequence < target) {
+        long left = timeoutNanos - (System.nanoTime() - start);
+        if (left <= 0) {
+          return false;
+        }
+        TimeUnit.NANOSECONDS.timedWait(this, left);
+      }
+      return true;
+    } finally {
+      flushWaiters--;
+    }
+  }
+
+  /**
+   * Stops accepting saves, writes the queued carts and stops the writer thread. Calling close()
+   * again has no effect.
+   *
+   * @throws InterruptedException if the calling thread is interrupted while waiting for the writer
+   */
+  public void close() throws InterruptedException {
+    synchronized (this) {
+      closed = true;
+      notifyAll();
+    }
+    writer.join();
+  }
+
+  /**
+   * Body of the writer thread: writes the queued carts in group commits until this writer is closed
+   * and its queue is empty. If the thread stops on an unexpected error, this writer is closed, the
+   * carts it did not write are counted as failed and the threads waiting in flush() are woken, so
+   * that no caller waits for a writer which is gone.
+   */
+  private void writeGroups() {
+    Throwable stopped = null; // error which stopped the writer thread, if any
+    try {
+      writeGroupCommits();
+    } catch (RuntimeException | Error e) {
+      stopped = e;
+      throw e;
+    } finally {
+      synchronized (this) {
+        closed = true;
+        if (stopped != null) {
+          failedWrites += queue.size();
+          lastError = "writer thread stopped: " + stopped;
+          queue.clear();
+          committedSequence = lastSequence;
+        }
+        notifyAll(); // wakes the threads waiting in flush()
+      }
+    }
+  }
+
+  /**
+   * Takes the queued carts as one group, writes them, and records the commit, until this writer is
+   * closed and its queue is empty
+   */
+  private void writeGroupCommits() {
+    while (true) {
+      LinkedHashMap<File, Pending> group;
+      long groupSequence;
+      synchronized (this) {
+        try {
+          while (queue.isEmpty() && !closed) {
+            wait();
+          }
+          long start = System.nanoTime();
+          while (!closed && flushWaiters == 0 && queue.size() < maxGroupSize) {
+            long left = commitIntervalNanos - (System.nanoTime() - start);
+            if (left <= 0) {
+              break;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, left);
+          }
+        } catch (InterruptedException e) {
+          // only close() stops the writer: the queued carts are still written below
+        }
+        if (queue.isEmpty()) {
+          if (closed) {
+            return;
+          }
+          continue;
+        }
+        group = queue;
+        groupSequence = lastSequence;
+        queue = new LinkedHashMap<File, Pending>();
+      }
+
+      // write the group without holding the lock, so that save() never waits for file I/O
+      long written = 0;
+      long failed = 0;
+      String error = null;
+      Error stopped = null; // error which stops the writer thread, if any
+      long latencyNanos = 0;
+      long maxNanos = 0;
+      for (Map.Entry<File, Pending> entry : group.entrySet()) {
+        Pending pending = entry.getValue();
+        try {
+          ExceptionalShoppingCart.writeCartSummaryFile(pending.cart, pending.cart.length,
+              entry.getKey());
+          written++;
+        } catch (IOException | RuntimeException e) {
+          failed++;
+          error = entry.getKey() + ": " + e;
+        } catch (Error e) {
+          // the rest of the group is not written: the commit is recorded below before stopping
+          stopped = e;
+          failed = group.size() - written;
+          error = entry.getKey() + ": " + e;
+          break;
+        }
+        long latency = System.nanoTime() - pending.queuedNanos;
+        latencyNanos += latency;
+        maxNanos = Math.max(maxNanos, latency);
+      }
+
+      synchronized (this) {
+        if (stopped != null) {
+          closed = true; // before waking flush(), so that save() then fails at once
+        }
+        committedSequence = groupSequence;
+        commits++;
+        writtenCarts += written;
+        failedWrites += failed;
+        if (error != null) {
+          lastError = error;
+        }
+        totalLatencyNanos += latencyNanos;
+        maxLatencyNanos = Math.max(maxLatencyNanos, maxNanos);
+        notifyAll(); // wakes the threads waiting in flush()
+      }
+      if (stopped != null) {
+        throw stopped;
+      }
+    }
+  }
+
+  /**
+   * Returns the number of carts waiting to be written, not counting the group being written
+   *
+   * @return the number of queued carts
+   */
+  public synchronized int getQueueDepth() {
+    return queue.size();
+  }
+
+  /**
+   * Returns the number of saves requested
+   *
+   * @return the number of saves
+   */
+  public synchronized long getSaves() {
+    return saves;
+  }
+
+  /**
+   * Returns the number of saves which replaced a cart still waiting to be written
+   *
+   * @return the number of coalesced saves
+   */
+  public synchronized long getCoalescedSaves() {
+    return coalescedSaves;
+  }
+
+  /**
+   * Returns the number of group commits
+   *
+   * @return the number of commits
+   */
+  public synchronized long getCommits() {
+    return commits;
+  }
+
+  /**
+   * Returns the number of carts written
+   *
+   * @return the number of carts written
+   */
+  public synchronized long getWrittenCarts() {
+    return writtenCarts;
+  }
+
+  /**
+   * Returns the number of carts which could not be written
+   *
+   * @return the number of failed writes
+   */
+  public synchronized long getFailedWrites() {
+    return failedWrites;
+  }
+
+  /**
+   * Returns the message of the last write error
+   *
+   * @return the file and the error of the last failed write, or null if no write failed
+   */
+  public synchronized String getLastError() {
+    return lastError;
+  }
+
+  /**
+   * Returns the average commit latency of the carts written or failed, the time between the first
+   * save of a cart since its file was last written and the end of its write
+   *
+   * @return the average commit latency in microseconds
+   */
+  public synchronized long getAverageCommitLatencyMicros() {
+    long carts = writtenCarts + failedWrites;
+    return carts == 0 ? 0 : totalLatencyNanos / carts / 1000;
+  }
+
+  /**
+   * Returns the longest commit latency of a cart written or failed
+   *
+   * @return the longest commit latency in microseconds
+   */
+  public synchronized long getMaxCommitLatencyMicros() {
+    return maxLatencyNanos / 1000;
+  }
+
+  /**
+   * Returns a short summary of the metrics of this writer
+   *
+   * @return "saves: S (C coalesced), queued: Q, commits: N, written: W, failed: F, latency: A us
+   *         average, M us max"
+   */
+  @Override
+  public synchronized String toString() {
+    return "saves: " + saves + " (" + coalescedSaves + " coalesced), queued: " + queue.size()
+        + ", commits: " + commits + ", written: " + writtenCarts + ", failed: " + failedWrites
+        + ", latency: " + getAverageCommitLatencyMicros() + " us average, "
+        + getMaxCommitLatencyMicros() + " us max";
+  }
+}
@@ -0,0 +1,268 @@
+//////////////// FILE HEADER (INCLUDE IN EVERY FILE) //////////////////////////
+//
+// Title: AsyncCartSummaryWriterTester.java
+///////////////////////////////////////////////////////////////////////////////
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * This class contains testers for the AsyncCartSummaryWriter class.
+ *
+ * @author Marin Suzuki
+ */
+public class AsyncCartSummaryWriterTester {
+
+  /**
+   * Main method
+   *
+   * @param args input arguments if any
+   */
+  public static void main(String[] args) throws InterruptedException {
+    System.out.println(testCoalescedSaves());
+    System.out.println(testCloseAndFailures());
+    System.out.println(testConcurrentSaves());
+    System.out.println(testWriterStopped());
+    System.out.println(runAllTests());
+  }
+
+  /**
+   * Reads a cart summary file, or returns null if it cannot be read
+   */
+  private static String read(File file) {
+    try {
+      return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    } catch (Exception e) {
+      return null;
+    }
+  }
+
+  /**
+   * This method tests that repeated saves of a same file are coalesced into one write of the last
+   * cart, and that flush() waits for the write
+   *
+   * @return true if all tests pass, and false if any of your tests fails.
+   *
+   */
+  public static boolean testCoalescedSaves() throws InterruptedException {
+    File file = new File("testAsyncFile");
+    // the writer waits up to one minute for more saves: only flush() commits the group
+    AsyncCartSummaryWriter writer = new AsyncCartSummaryWriter(60000, 1000);
+    try {
+      String[] cart = new String[20];
+      int size = 0;
+      for (int i = 0; i < 10; i++) {
+        size = ExceptionalShoppingCart.addItemToCart(i % 2 == 0 ? "Milk" : "Eggs", cart, size);
+        writer.save(cart, size, file);
+      }
+      cart[0] = "Pizza"; // changing the cart after save() does not change the queued copy
+      if (writer.getQueueDepth() != 1 || writer.getCoalescedSaves() != 9) {
+        return false; // incorrect
+      }
+      if (!writer.flush(10000) || writer.getQueueDepth() != 0 || writer.getCommits() != 1
+          || writer.getWrittenCarts() != 1 || writer.getFailedWrites() != 0) {
+        return false; // incorrect
+      }
+      if (!"( 5 ) Milk\n( 5 ) Eggs".equals(read(file))) {
+        return false; // incorrect
+      }
+      if (!writer.flush(0)) { // nothing left to write
+        return false; // incorrect
+      }
+    } catch (Exception e) {
+      System.out.println(e.getMessage());
+      return false; // incorrect
+    } finally {
+      writer.close();
+      file.delete();
+    }
+
+    try {
+      writer.save(new String[] {"Milk"}, 1, file); // invalid input: writer closed
+      return false; // incorrect
+    } catch (IllegalStateException e) {
+      System.out.println(e.getMessage()); // correct
+    } catch (Exception e) {
+      return false; // incorrect
+    }
+
+    try {
+      new AsyncCartSummaryWriter(-1, 10); // invalid input
+      return false; // incorrect
+    } catch (IllegalArgumentException e) {
+      System.out.println(e.getMessage()); // correct
+    } catch (Exception e) {
+      return false; // incorrect
+    }
+
+    return true; // no bug detected
+  }
+
+  /**
+   * This method tests that close() writes all the queued carts, that invalid carts are rejected
+   * before being queued, and that files which cannot be written are counted without stopping the
+   * writer
+   *
+   * @return true if all tests pass, and false if any of your tests fails.
+   *
+   */
+  public static boolean testCloseAndFailures() throws InterruptedException {
+    File[] files = new File[5];
+    for (int i = 0; i < files.length; i++) {
+      files[i] = new File("testAsyncFile" + i);
+    }
+    AsyncCartSummaryWriter writer = new AsyncCartSummaryWriter(60000, 1000);
+    try {
+      for (int i = 0; i < files.length; i++) {
+        writer.save(new String[] {"Apple", "Banana"}, 1 + i % 2, files[i]);
+      }
+      writer.save(new String[] {"Milk"}, 1, new File("no such directory", "testAsyncFile"));
+      writer.save(new String[] {"Pizza"}, 1, files[0]); // replaces the cart queued for files[0]
+      try {
+        writer.save(new String[] {null}, 1, files[0]); // invalid input: null item
+        return false; // incorrect
+      } catch (IllegalArgumentException e) {
+        System.out.println(e.getMessage()); // correct
+      }
+      try {
+        writer.save(new String[] {"Milk"}, 2, files[0]); // invalid input: size out of the cart
+        return false; // incorrect
+      } catch (IllegalArgumentException e) {
+        System.out.println(e.getMessage()); // correct
+      }
+      writer.close();
+      writer.close(); // no effect
+      if (writer.getWrittenCarts() != 5 || writer.getFailedWrites() != 1 || writer.getSaves() != 7
+          || writer.getLastError() == null || writer.getQueueDepth() != 0) {
+        return false; // incorrect
+      }
+      if (!"( 1 ) Pizza".equals(read(files[0]))
+          || !"( 1 ) Apple\n( 1 ) Banana".equals(read(files[1]))
+          || !"( 1 ) Apple".equals(read(files[4]))) {
+        return false; // incorrect
+      }
+    } catch (Exception e) {
+      System.out.println(e.getMessage());
+      return false; // incorrect
+    } finally {
+      for (File file : files) {
+        file.delete();
+      }
+    }
+
+    return true; // no bug detected
+  }
+
+  /**
+   * This method tests that concurrent saves of many carts are all written once flushed, each file
+   * holding the last cart saved to it
+   *
+   * @return true if all tests pass, and false if any of your tests fails.
+   *
+   */
+  public static boolean testConcurrentSaves() throws InterruptedException {
+    final AsyncCartSummaryWriter writer = new AsyncCartSummaryWriter(1, 16);
+    final File[] files = new File[40];
+    for (int i = 0; i < files.length; i++) {
+      files[i] = new File("testAsyncFile" + i);
+    }
+    try {
+      Thread[] threads = new Thread[4];
+      for (int t = 0; t < threads.length; t++) {
+        final int first = t * 10; // each thread saves its own 10 files
+        threads[t] = new Thread(() -> {
+          String[] cart = new String[100];
+          for (int i = 0; i < 100; i++) {
+            cart[i] = "Banana";
+            writer.save(cart, i + 1, files[first + i % 10]);
+          }
+        });
+        threads[t].start();
+      }
+      for (Thread thread : threads) {
+        thread.join();
+      }
+      writer.flush();
+
+      if (writer.getSaves() != 400 || writer.getFailedWrites() != 0
+          || writer.getWrittenCarts() + writer.getCoalescedSaves() != 400) {
+        return false; // incorrect
+      }
+      for (int i = 0; i < files.length; i++) {
+        if (!("( " + (91 + i % 10) + " ) Banana").equals(read(files[i]))) {
+          return false; // incorrect
+        }
+      }
+    } finally {
+      writer.close();
+      for (File file : files) {
+        file.delete();
+      }
+    }
+    return true; // no bug detected
+  }
+
+  /**
+   * This method tests that an error stopping the writer thread closes the writer: the carts it did
+   * not write are counted as failed, flush() returns instead of waiting forever, and save() throws
+   * IllegalStateException
+   *
+   * @return true if all tests pass, and false if any of your tests fails.
+   *
+   */
+  public static boolean testWriterStopped() throws InterruptedException {
+    File written = new File("testAsyncFile0");
+    File broken = new File("testAsyncFile1") {
+      @Override
+      public Path toPath() {
+        throw new AssertionError("broken file system"); // stops the writer thread
+      }
+    };
+    File unwritten = new File("testAsyncFile2");
+    AsyncCartSummaryWriter writer = new AsyncCartSummaryWriter(60000, 1000);
+    try {
+      writer.save(new String[] {"Apple"}, 1, written);
+      writer.save(new String[] {"Banana"}, 1, broken);
+      writer.save(new String[] {"Milk"}, 1, unwritten);
+      if (!writer.flush(10000)) {
+        return false; // incorrect: the waiter was not woken
+      }
+      try {
+        writer.save(new String[] {"Pizza"}, 1, written); // the writer is closed
+        return false; // incorrect
+      } catch (IllegalStateException e) {
+        System.out.println(e.getMessage()); // correct
+      }
+      writer.close(); // the writer thread is already stopped
+      if (writer.getWrittenCarts() != 1 || writer.getFailedWrites() != 2
+          || writer.getLastError() == null || writer.getQueueDepth() != 0) {
+        return false; // incorrect
+      }
+      if (!"( 1 ) Apple".equals(read(written)) || unwritten.exists()
+          || new File("testAsyncFile1.tmp").exists()) {
+        return false; // incorrect
+      }
+    } catch (Exception e) {
+      System.out.println(e.getMessage());
+      return false; // incorrect
+    } finally {
+      written.delete();
+      unwritten.delete();
+    }
+
+    return true; // no bug detected
+  }
+
+  /**
+   * This method call all the tester methods.
+   *
+   * @return true if all tests pass, and false if any of your tests fails.
+   *
+   */
+  public static boolean runAllTests() throws InterruptedException {
+    return testCoalescedSaves() && testCloseAndFailures() && testConcurrentSaves()
+        && testWriterStopped();
+  }
+}
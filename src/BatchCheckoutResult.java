@@ -0,0 +1,114 @@
+//////////////// FILE HEADER (INCLUDE IN EVERY FILE) //////////////////////////
+//
+// Title: BatchCheckoutResult.java
+///////////////////////////////////////////////////////////////////////////////
+
+/**
+ * This class reports the outcome of the checkout of a batch of carts: the total in cents of each
+ * cart, and the aggregate over the batch. A cart which holds an item not found in the market, or
+ * whose size is not valid, is rejected instead of stopping the batch: its total is -1 and it is
+ * not part of the aggregate. All the carts of a batch are priced against the same catalog
+ * snapshot, whose version is reported.
+ *
+ * @author Marin Suzuki
+ */
+public class BatchCheckoutResult {
+
+  private final long[] totalsCents; // total of each cart accounting taxes, -1 if rejected
+  private final long catalogVersion; // version of the catalog snapshot used to price the batch
+  private long aggregateCents; // sum of the totals of the priced carts
+  private int priced; // number of carts priced
+  private int rejected; // number of carts rejected
+
+  /**
+   * Creates the result of a batch from the total of each of its carts
+   *
+   * @param totalsCents    total in cents of each cart accounting taxes, -1 for a rejected cart
+   * @param catalogVersion version of the catalog snapshot used to price the batch
+   */
+  BatchCheckoutResult(long[] totalsCents, long catalogVersion) {
+    this.totalsCents = totalsCents;
+    this.catalogVersion = catalogVersion;
+    for (long total : totalsCents) {
+      if (total < 0) {
+        rejected++;
+      } else {
+        aggregateCents += total;
+        priced++;
+      }
+    }
+  }
+
+  /**
+   * Returns the number of carts in the batch
+   *
+   * @return the number of carts in the batch
+   */
+  public int size() {
+    return totalsCents.length;
+  }
+
+  /**
+   * Returns the total value in cents of a cart of the batch accounting taxes. If index is not the
+   * index of a cart of the batch, IndexOutOfBoundsException will be thrown.
+   *
+   * @param index index of the cart in the batch
+   * @return the total of the cart in cents, or -1 if the cart was rejected
+   * @throws java.lang.IndexOutOfBoundsException with descriptive error message if index is not the
+   *                                             index of a cart of the batch
+   */
+  public long getTotalCents(int index) {
+    // throws IndexOutOfBoundsException with descriptive error message if index is out of the batch
+    if (index < 0 || index >= totalsCents.length) {
+      throw new IndexOutOfBoundsException("cart " + index + " is out of the batch");
+    }
+    return totalsCents[index];
+  }
+
+  /**
+   * Returns the sum of the totals in cents of the priced carts of the batch
+   *
+   * @return the aggregate total of the batch in cents
+   */
+  public long getAggregateTotalCents() {
+    return aggregateCents;
+  }
+
+  /**
+   * Returns the number of carts priced
+   *
+   * @return the number of carts priced
+   */
+  public int getPriced() {
+    return priced;
+  }
+
+  /**
+   * Returns the number of carts rejected
+   *
+   * @return the number of carts rejected
+   */
+  public int getRejected() {
+    return rejected;
+  }
+
+  /**
+   * Returns the version of the catalog snapshot the batch was priced against
+   *
+   * @return the version of the catalog snapshot
+   */
+  public long getCatalogVersion() {
+    return catalogVersion;
+  }
+
+  /**
+   * Returns a short summary of this batch
+   *
+   * @return "priced: N, rejected: M, total: $x.yy"
+   */
+  @Override
+  public String toString() {
+    return "priced: " + priced + ", rejected: " + rejected + ", total: "
+        + MoneyEngine.format(aggregateCents);
+  }
+}
@@ -0,0 +1,226 @@
+//////////////// FILE HEADER (INCLUDE IN EVERY FILE) //////////////////////////
+//
+// Title: BinaryCartSummary.java
+///////////////////////////////////////////////////////////////////////////////
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * This class is a cart summary in a compact binary file: one line per distinct item of the cart,
+ * holding the SKU of the item and its number of units, which is not limited to 10. The file is
+ * made of:
+ *
+ * header: magic "ESC" and format version (4 bytes)
+ * lines: the number of lines, then for each line its SKU and its quantity (unsigned varints: 7 bits
+ * per byte, least significant first, high bit set on all bytes but the last)
+ * checksum: CRC32 of all the previous bytes of the file followed by the names of the items of the
+ * lines, each followed by a new line, in UTF-8 (int, big-endian)
+ *
+ * SKUs are rows of the market catalog, so a file can only be read against a catalog holding the
+ * same items in the same rows. Since the names are part of the checksum, a file read against any
+ * other catalog is rejected like a corrupted file, while each name costs no byte in the file.
+ *
+ * @author Marin Suzuki
+ */
+public class BinaryCartSummary {
+
+  private static final int MAGIC = 0x455343; // "ESC"
+  private static final int FORMAT_VERSION = 1;
+
+  private final int[] skus; // SKU of the item of each line
+  private final int[] quantities; // number of units of each line
+  private final int lines; // number of lines
+
+  /**
+   * Creates a summary of the given lines
+   *
+   * @param skus       SKU of the item of each line
+   * @param quantities number of units of each line
+   * @param lines      number of lines
+   */
+  private BinaryCartSummary(int[] skus, int[] quantities, int lines) {
+    this.skus = skus;
+    this.quantities = quantities;
+    this.lines = lines;
+  }
+
+  /**
+   * Writes a cart summary to a binary cart file, replacing its content
+   *
+   * @param catalog    catalog snapshot holding the items of the lines
+   * @param skus       SKU of the item of each line, a row of catalog
+   * @param quantities number of units of each line, at least one
+   * @param lines      number of lines
+   * @param file       file to write
+   * @throws IOException if the file cannot be written
+   */
+  public static void write(CatalogSnapshot catalog, int[] skus, int[] quantities, int lines,
+      File file) throws IOException {
+    byte[] out = new byte[13 + lines * 10]; // room for the largest varints
+    int position = putInt(out, 0, MAGIC << 8 | FORMAT_VERSION);
+    position = putVarint(out, position, lines);
+    for (int i = 0; i < lines; i++) {
+      position = putVarint(out, position, skus[i]);
+      position = putVarint(out, position, quantities[i]);
+    }
+    position = putInt(out, position, checksum(catalog, out, position, skus, lines));
+    Files.write(file.toPath(), Arrays.copyOf(out, position));
+  }
+
+  /**
+   * Reads a binary cart file written by write()
+   *
+   * @param catalog catalog snapshot holding the items of the cart
+   * @param file    binary cart file
+   * @return the cart summary read
+   * @throws IOException if the file cannot be read, is not a binary cart file of a supported
+   *                     version, is corrupted or was saved against another catalog
+   */
+  public static BinaryCartSummary read(CatalogSnapshot catalog, File file) throws IOException {
+    byte[] in = Files.readAllBytes(file.toPath());
+    if (in.length < 9 || getInt(in, 0) >>> 8 != MAGIC) {
+      throw new IOException("not a binary cart file");
+    }
+    if ((in[3] & 0xff) != FORMAT_VERSION) {
+      throw new IOException("unsupported binary cart version " + (in[3] & 0xff));
+    }
+
+    // varints are read as longs to reject values which do not fit in an int
+    int end = in.length - 4; // start of the checksum
+    int[] position = {4};
+    long lines = getVarint(in, position, end);
+    if (lines > (end - position[0]) / 2) { // each line takes at least 2 bytes
+      throw new IOException("corrupted binary cart file");
+    }
+    int[] skus = new int[(int) lines];
+    int[] quantities = new int[(int) lines];
+    for (int i = 0; i < lines; i++) {
+      long sku = getVarint(in, position, end);
+      long quantity = getVarint(in, position, end);
+      if (sku >= catalog.size() || quantity < 1 || quantity > Integer.MAX_VALUE) {
+        throw new IOException("corrupted binary cart file");
+      }
+      skus[i] = (int) sku;
+      quantities[i] = (int) quantity;
+    }
+    if (position[0] != end
+        || checksum(catalog, in, end, skus, (int) lines) != getInt(in, end)) {
+      throw new IOException("corrupted binary cart file, or saved against another catalog");
+    }
+    return new BinaryCartSummary(skus, quantities, (int) lines);
+  }
+
+  /**
+   * Returns the CRC32 of the first length bytes of a file followed by the names of the items of
+   * the given lines, each name followed by a new line, in UTF-8
+   */
+  private static int checksum(CatalogSnapshot catalog, byte[] bytes, int length, int[] skus,
+      int lines) {
+    CRC32 check = new CRC32();
+    check.update(bytes, 0, length);
+    for (int i = 0; i < lines; i++) {
+      check.update(catalog.getName(skus[i]).getBytes(StandardCharsets.UTF_8));
+      check.update('\n');
+    }
+    return (int) check.getValue();
+  }
+
+  /**
+   * Writes an int, big-endian, and returns the position after it
+   */
+  private static int putInt(byte[] out, int position, int value) {
+    out[position] = (byte) (value >>> 24);
+    out[position + 1] = (byte) (value >>> 16);
+    out[position + 2] = (byte) (value >>> 8);
+    out[position + 3] = (byte) value;
+    return position + 4;
+  }
+
+  /**
+   * Reads an int, big-endian
+   */
+  private static int getInt(byte[] in, int position) {
+    return (in[position] & 0xff) << 24 | (in[position + 1] & 0xff) << 16
+        | (in[position + 2] & 0xff) << 8 | (in[position + 3] & 0xff);
+  }
+
+  /**
+   * Writes a non negative int as an unsigned varint, and returns the position after it
+   */
+  private static int putVarint(byte[] out, int position, int value) {
+    while ((value & ~0x7f) != 0) {
+      out[position++] = (byte) (value & 0x7f | 0x80);
+      value >>>= 7;
+    }
+    out[position++] = (byte) value;
+    return position;
+  }
+
+  /**
+   * Reads an unsigned varint of at most 5 bytes which ends before end, and moves position[0]
+   * after it
+   *
+   * @throws IOException if the varint is too long or does not end before end
+   */
+  private static long getVarint(byte[] in, int[] position, int end) throws IOException {
+    long value = 0;
+    for (int shift = 0; shift < 35; shift += 7) {
+      if (position[0] >= end) {
+        break;
+      }
+      byte b = in[position[0]++];
+      value |= (long) (b & 0x7f) << shift;
+      if (b >= 0) {
+        return value;
+      }
+    }
+    throw new IOException("corrupted binary cart file");
+  }
+
+  /**
+   * Returns the number of lines of this summary
+   *
+   * @return the number of lines
+   */
+  public int lines() {
+    return lines;
+  }
+
+  /**
+   * Returns the SKU of the item of a line
+   *
+   * @param line index of the line
+   * @return the SKU of the item of the line
+   */
+  public int getSku(int line) {
+    return skus[line];
+  }
+
+  /**
+   * Returns the number of units of a line
+   *
+   * @param line index of the line
+   * @return the number of units of the line
+   */
+  public int getQuantity(int line) {
+    return quantities[line];
+  }
+
+  /**
+   * Returns the number of units of all the lines
+   *
+   * @return the number of units of the cart
+   */
+  public long units() {
+    long units = 0;
+    for (int i = 0; i < lines; i++) {
+      units += quantities[i];
+    }
+    return units;
+  }
+}
@@ -0,0 +1,325 @@
+//////////////// FILE HEADER (INCLUDE IN EVERY FILE) //////////////////////////
+//
+// Title: CartSessionStore.java
+///////////////////////////////////////////////////////////////////////////////
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class keeps the live shopping carts of many sessions, keyed by session id. It can be used
+ * from any number of threads.
+ *
+ * Sessions are spread over a fixed number of stripes by the hash of their id. Each stripe is a
+ * small map guarded by its own lock, so threads working on sessions of different stripes never
+ * wait for each other, and an operation only holds a lock for the time of one cart update.
+ *
+ * Memory is bounded: the store never holds more than maxSessions sessions, counted across all
+ * the stripes. A session is only evicted to make room for a new one when the whole store is full,
+ * and the one evicted is the least recently used session of the store: the stripes keep their
+ * sessions in access order, so it is the oldest of the first sessions of the stripes. Sessions not
+ * used for longer than the idle timeout are removed by evictIdle(), which is meant to be called
+ * periodically; nothing calls it for the store.
+ *
+ * @author Marin Suzuki
+ */
+public class CartSessionStore {
+
+  private static final int STRIPES = 64; // a power of two
+  private static final int STRIPE_SHIFT = 32 - Integer.numberOfTrailingZeros(STRIPES);
+
+  private final Stripe[] stripes = new Stripe[STRIPES];
+  private final int maxSessions;
+  private final long idleTimeoutNanos;
+
+  // number of sessions in the store, plus the sessions being started: a session is counted
+  // before it is added to its stripe, so that the count never goes over maxSessions
+  private final AtomicInteger sessions = new AtomicInteger();
+
+  /**
+   * The sessions of one stripe, in access order (least recently used first). Only accessed while
+   * holding the lock of the stripe.
+   */
+  private static class Stripe extends LinkedHashMap<String, Session> {
+    private static final long serialVersionUID = 1L;
+
+    private Stripe() {
+      super(16, 0.75f, true);
+    }
+  }
+
+  /**
+   * One live session: its cart and the time it was last used
+   */
+  private static class Session {
+    private final ShoppingCart cart = new ShoppingCart();
+    private long lastAccessNanos;
+  }
+
+  /**
+   * Creates an empty session store. If maxSessions is not positive or idleTimeoutMillis is
+   * negative, IllegalArgumentException will be thrown.
+   *
+   * @param maxSessions       maximum number of sessions kept by this store
+   * @param idleTimeoutMillis time in milliseconds after which an unused session can be evicted
+   * @throws java.lang.IllegalArgumentException with descriptive error message if maxSessions is
+   *                                            not positive or idleTimeoutMillis is negative
+   */
+  public CartSessionStore(int maxSessions, long idleTimeoutMillis) {
+    // throws IllegalArgumentException with descriptive error message if invalid input
+    if (maxSessions <= 0) {
+      throw new IllegalArgumentException("maxSessions should be more than zero");
+    }
+    if (idleTimeoutMillis < 0) {
+      throw new IllegalArgumentException("idleTimeoutMillis should be more than or equal to zero");
+    }
+
+    for (int i = 0; i < STRIPES; i++) {
+      stripes[i] = new Stripe();
+    }
+    this.maxSessions = maxSessions;
+    this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis); // saturates
+  }
+
+  /**
+   * Returns the stripe holding the given session id. If sessionId is null,
+   * IllegalArgumentException will be thrown.
+   */
+  private Stripe stripeOf(String sessionId) {
+    // throws IllegalArgumentException with descriptive error message if sessionId is null
+    if (sessionId == null) {
+      throw new IllegalArgumentException("sessionId should not be null");
+    }
+    // Fibonacci hashing: ids which only differ by a numeric suffix get well spread stripes
+    return stripes[(sessionId.hashCode() * 0x9E3779B9) >>> STRIPE_SHIFT];
+  }
+
+  /**
+   * Returns the session with the given id, marked as used. Must be called holding the lock of
+   * stripe. If there is no such session, NoSuchElementException will be thrown.
+   */
+  private static Session session(Stripe stripe, String sessionId) {
+    Session session = stripe.get(sessionId);
+
+    // throws NoSuchElementException with descriptive error message if session not found
+    if (session == null) {
+      throw new NoSuchElementException("session was not found");
+    }
+    session.lastAccessNanos = System.nanoTime();
+    return session;
+  }
+
+  /**
+   * Adds one unit of a given item to the cart of a session, starting the session if it does not
+   * exist yet. Starting a session in a full store evicts its least recently used session. If item
+   * is not found in the market, IllegalArgumentException will be thrown and no session is
+   * started.
+   *
+   * @param sessionId id of the session
+   * @param item      the name of the product to be added to the cart
+   * @return the number of units in the cart of the session after adding item
+   * @throws java.lang.IllegalArgumentException with descriptive error message if item is not found
+   *                                            in the market
+   */
+  public int addItem(String sessionId, String item) {
+    Stripe stripe = stripeOf(sessionId);
+
+    // throws IllegalArgumentException with descriptive error message if item not found, before a
+    // new session can evict another one
+    if (ExceptionalShoppingCart.findProductSku(item) < 0) {
+      throw new IllegalArgumentException("No matched name of item found in market");
+    }
+
+    synchronized (stripe) {
+      Session session = stripe.get(sessionId);
+      if (session != null) {
+        session.lastAccessNanos = System.nanoTime();
+        return session.cart.addItem(item);
+      }
+    }
+
+    // new session: make room for it without holding the lock of its stripe, since eviction locks
+    // the other stripes
+    reserveSession();
+    synchronized (stripe) {
+      Session session = stripe.get(sessionId);
+      if (session == null) {
+        session = new Session();
+        stripe.put(sessionId, session);
+      } else {
+        sessions.decrementAndGet(); // started by another thread in the meantime
+      }
+      session.lastAccessNanos = System.nanoTime();
+      return session.cart.addItem(item);
+    }
+  }
+
+  /**
+   * Counts one more session, first evicting the least recently used sessions of the store while
+   * it is full
+   */
+  private void reserveSession() {
+    while (true) {
+      int count = sessions.get();
+      if (count < maxSessions) {
+        if (sessions.compareAndSet(count, count + 1)) {
+          return;
+        }
+      } else if (!evictLeastRecentlyUsed()) {
+        Thread.yield(); // the store is full of sessions being started by other threads
+      }
+    }
+  }
+
+  /**
+   * Removes the least recently used session of the store: the oldest of the first sessions of the
+   * stripes. The stripes are only locked one at a time.
+   *
+   * @return true if a session was removed, and false if no stripe holds any session
+   */
+  private boolean evictLeastRecentlyUsed() {
+    Stripe oldest = null;
+    long oldestNanos = 0;
+    for (Stripe stripe : stripes) {
+      synchronized (stripe) {
+        if (!stripe.isEmpty()) {
+          long lastAccessNanos = stripe.values().iterator().next().lastAccessNanos;
+          if (oldest == null || lastAccessNanos - oldestNanos < 0) {
+            oldest = stripe;
+            oldestNanos = lastAccessNanos;
+          }
+        }
+      }
+    }
+    if (oldest == null) {
+      return false;
+    }
+    synchronized (oldest) {
+      Iterator<Session> eldest = oldest.values().iterator();
+      if (!eldest.hasNext()) {
+        return true; // emptied by another thread in the meantime: count again
+      }
+      eldest.next();
+      eldest.remove();
+      sessions.decrementAndGet();
+      return true;
+    }
+  }
+
+  /**
+   * Removes one unit of a given item from the cart of a session. If the session or the item is not
+   * found, NoSuchElementException will be thrown.
+   *
+   * @param sessionId id of the session
+   * @param item      the name of the item to remove
+   * @return the number of units in the cart of the session after removing item
+   * @throws java.util.NoSuchElementException with descriptive error message if the session is not
+   *                                          found or item not found in its cart
+   */
+  public int removeItem(String sessionId, String item) {
+    Stripe stripe = stripeOf(sessionId);
+    synchronized (stripe) {
+      return session(stripe, sessionId).cart.removeItem(item);
+    }
+  }
+
+  /**
+   * Returns the number of units of a given item within the cart of a session. If the session is
+   * not found, NoSuchElementException will be thrown.
+   *
+   * @param sessionId id of the session
+   * @param item      the name of the item to search
+   * @return the number of units of item in the cart of the session
+   * @throws java.util.NoSuchElementException with descriptive error message if the session is not
+   *                                          found
+   */
+  public int nbOccurrences(String sessionId, String item) {
+    Stripe stripe = stripeOf(sessionId);
+    synchronized (stripe) {
+      return session(stripe, sessionId).cart.nbOccurrences(item);
+    }
+  }
+
+  /**
+   * Returns the total value in cents of the cart of a session accounting taxes. If the session is
+   * not found, NoSuchElementException will be thrown.
+   *
+   * @param sessionId id of the session
+   * @return the total of the cart of the session in cents
+   * @throws java.util.NoSuchElementException with descriptive error message if the session is not
+   *                                          found
+   */
+  public long checkoutCents(String sessionId) {
+    Stripe stripe = stripeOf(sessionId);
+    synchronized (stripe) {
+      return session(stripe, sessionId).cart.getTotalCents();
+    }
+  }
+
+  /**
+   * Ends a session, dropping its cart
+   *
+   * @param sessionId id of the session
+   * @return true if the session was found, and false otherwise
+   */
+  public boolean endSession(String sessionId) {
+    Stripe stripe = stripeOf(sessionId);
+    synchronized (stripe) {
+      if (stripe.remove(sessionId) == null) {
+        return false;
+      }
+      sessions.decrementAndGet();
+      return true;
+    }
+  }
+
+  /**
+   * Removes the sessions which have not been used for longer than the idle timeout
+   *
+   * @return the number of sessions removed
+   */
+  public int evictIdle() {
+    return evictIdle(System.nanoTime());
+  }
+
+  /**
+   * Removes the sessions which have not been used for longer than the idle timeout at the given
+   * time. Sessions of a stripe are in access order, so the walk of each stripe stops at its first
+   * session which is not idle.
+   *
+   * @param nowNanos current time, as given by System.nanoTime()
+   * @return the number of sessions removed
+   */
+  int evictIdle(long nowNanos) {
+    int evicted = 0;
+    for (Stripe stripe : stripes) {
+      synchronized (stripe) {
+        Iterator<Session> idle = stripe.values().iterator();
+        while (idle.hasNext() && nowNanos - idle.next().lastAccessNanos > idleTimeoutNanos) {
+          idle.remove();
+          sessions.decrementAndGet();
+          evicted++;
+        }
+      }
+    }
+    return evicted;
+  }
+
+  /**
+   * Returns the number of live sessions in this store
+   *
+   * @return the number of sessions
+   */
+  public int size() {
+    int size = 0;
+    for (Stripe stripe : stripes) {
+      synchronized (stripe) {
+        size += stripe.size();
+      }
+    }
+    return size;
+  }
+}
@@ -0,0 +1,231 @@
+//////////////// FILE HEADER (INCLUDE IN EVERY FILE) //////////////////////////
+//
+// Title: CartSessionStoreTester.java
+///////////////////////////////////////////////////////////////////////////////
+
+import java.util.NoSuchElementException;
+
+/**
+ * This class contains testers for the CartSessionStore class.
+ *
+ * @author Marin Suzuki
+ */
+public class CartSessionStoreTester {
+
+  /**
+   * Main method
+   *
+   * @param args input arguments if any
+   */
+  public static void main(String[] args) throws InterruptedException {
+    System.out.println(testSessions());
+    System.out.println(testEviction());
+    System.out.println(testConcurrentSessions());
+    System.out.println(runAllTests());
+  }
+
+  /**
+   * This method tests addItem(), removeItem(), nbOccurrences(), checkoutCents() and endSession()
+   *
+   * @return true if all tests pass, and false if any of your tests fails.
+   *
+   */
+  public static boolean testSessions() {
+    CartSessionStore store = new CartSessionStore(1000, 60000);
+
+    try {
+      // valid input
+      store.addItem("alice", "Pizza"); // $11.5
+      store.addItem("bob", "Apple");
+      if (store.addItem("alice", "Apple") != 2 || store.nbOccurrences("alice", "Pizza") != 1
+          || store.nbOccurrences("bob", "Pizza") != 0 || store.size() != 2) {
+        return false; // incorrect
+      }
+      if (store.checkoutCents("alice") != 1374) { // $13.09 + 5% tax
+        return false; // incorrect
+      }
+      if (store.removeItem("bob", "Apple") != 0 || !store.endSession("bob")
+          || store.endSession("bob") || store.size() != 1) {
+        return false; // incorrect
+      }
+    } catch (Exception e) {
+      System.out.println(e.getMessage());
+      return false; // incorrect
+    }
+
+    try {
+      store.checkoutCents("bob"); // invalid input: session ended
+      return false; // incorrect
+    } catch (NoSuchElementException e) {
+      System.out.println(e.getMessage()); // correct
+    } catch (Exception e) {
+      return false; // incorrect
+    }
+
+    try {
+      store.addItem("alice", "not existing name"); // invalid input: item not in the market
+      return false; // incorrect
+    } catch (IllegalArgumentException e) {
+      System.out.println(e.getMessage()); // correct
+    } catch (Exception e) {
+      return false; // incorrect
+    }
+
+    try {
+      // invalid input: item not in the market, for a new session
+      store.addItem("carol", "not existing name");
+      return false; // incorrect
+    } catch (IllegalArgumentException e) {
+      System.out.println(e.getMessage()); // correct
+    } catch (Exception e) {
+      return false; // incorrect
+    }
+    if (store.size() != 1) { // no session was started for carol
+      return false; // incorrect
+    }
+
+    try {
+      // a store of one session keeps its session when a new one fails to start
+      CartSessionStore single = new CartSessionStore(1, 60000);
+      single.addItem("alice", "Milk");
+      try {
+        single.addItem("bob", "not existing name"); // invalid input: item not in the market
+        return false; // incorrect
+      } catch (IllegalArgumentException e) {
+        System.out.println(e.getMessage()); // correct
+      }
+      if (single.size() != 1 || single.nbOccurrences("alice", "Milk") != 1) {
+        return false; // incorrect
+      }
+    } catch (Exception e) {
+      System.out.println(e.getMessage());
+      return false; // incorrect
+    }
+
+    try {
+      new CartSessionStore(0, 60000); // invalid input
+      return false; // incorrect
+    } catch (IllegalArgumentException e) {
+      System.out.println(e.getMessage()); // correct
+    } catch (Exception e) {
+      return false; // incorrect
+    }
+
+    return true; // no bug detected
+  }
+
+  /**
+   * This method tests that the number of sessions is bounded and that evictIdle() removes idle
+   * sessions only
+   *
+   * @return true if all tests pass, and false if any of your tests fails.
+   *
+   */
+  public static boolean testEviction() {
+    try {
+      // the bound holds for any number of sessions, including less than the number of stripes
+      int[] bounds = new int[] {1, 3, 64, 100};
+      for (int bound : bounds) {
+        CartSessionStore store = new CartSessionStore(bound, 1000);
+        for (int i = 0; i < 10000; i++) {
+          store.addItem("session" + i, "Milk");
+        }
+        if (store.size() > bound) {
+          return false; // incorrect
+        }
+      }
+
+      // no session is evicted while the store is under its bound, whatever the stripes they fall
+      // in
+      CartSessionStore large = new CartSessionStore(1000, 1000);
+      for (int i = 0; i < 1000; i++) {
+        large.addItem("session" + i, "Milk");
+      }
+      for (int i = 0; i < 1000; i++) {
+        if (large.nbOccurrences("session" + i, "Milk") != 1) {
+          return false; // incorrect
+        }
+      }
+
+      // a full store evicts its least recently used session
+      CartSessionStore full = new CartSessionStore(3, 1000);
+      full.addItem("alice", "Milk");
+      full.addItem("bob", "Milk");
+      full.addItem("carol", "Milk");
+      full.addItem("alice", "Eggs"); // bob is now the least recently used session
+      full.addItem("dave", "Milk");
+      if (full.size() != 3 || full.endSession("bob") || full.nbOccurrences("alice", "Eggs") != 1
+          || full.nbOccurrences("carol", "Milk") != 1) {
+        return false; // incorrect
+      }
+
+      // ended sessions free their room
+      full.endSession("alice");
+      full.addItem("erin", "Milk");
+      if (full.size() != 3 || full.nbOccurrences("carol", "Milk") != 1) {
+        return false; // incorrect
+      }
+
+      // a very long idle timeout does not overflow: nothing is idle
+      CartSessionStore store = new CartSessionStore(1000, Long.MAX_VALUE);
+      store.addItem("alice", "Milk");
+      if (store.evictIdle(System.nanoTime() + 2000000000L) != 0) {
+        return false; // incorrect
+      }
+
+      store = new CartSessionStore(1000, 1000);
+      store.addItem("alice", "Milk");
+      store.addItem("bob", "Milk");
+      if (store.evictIdle() != 0 || store.size() != 2) {
+        return false; // incorrect
+      }
+      if (store.evictIdle(System.nanoTime() + 2000000000L) != 2 || store.size() != 0) {
+        return false; // incorrect
+      }
+    } catch (Exception e) {
+      System.out.println(e.getMessage());
+      return false; // incorrect
+    }
+
+    return true; // no bug detected
+  }
+
+  /**
+   * This method tests that concurrent updates of many sessions are not lost
+   *
+   * @return true if all tests pass, and false if any of your tests fails.
+   *
+   */
+  public static boolean testConcurrentSessions() throws InterruptedException {
+    final CartSessionStore store = new CartSessionStore(1000, 60000);
+    Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; t++) {
+      threads[t] = new Thread(() -> {
+        for (int i = 0; i < 10000; i++) {
+          store.addItem("session" + i % 100, "Banana");
+        }
+      });
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    for (int i = 0; i < 100; i++) {
+      if (store.nbOccurrences("session" + i, "Banana") != 400) {
+        return false; // incorrect
+      }
+    }
+    return true; // no bug detected
+  }
+
+  /**
+   * This method call all the tester methods.
+   *
+   * @return true if all tests pass, and false if any of your tests fails.
+   *
+   */
+  public static boolean runAllTests() throws InterruptedException {
+    return testSessions() && testEviction() && testConcurrentSessions();
+  }
+}
@@ -0,0 +1,185 @@
+//////////////// FILE HEADER (INCLUDE IN EVERY FILE) //////////////////////////
+//
+// Title: CartSummaryLoadResult.java
+///////////////////////////////////////////////////////////////////////////////
+
+import java.io.File;
+
+/**
+ * This class reports the outcome of a bulk load of cart summary files: for each file, the cart
+ * loaded from it or a descriptive error message, and for the whole load, the number of files and
+ * bytes read and the time it took. Files are reported in the order they were given.
+ *
+ * @author Marin Suzuki
+ */
+public class CartSummaryLoadResult {
+
+  private final File[] files; // the files loaded
+  private final String[][] carts; // cart loaded from each file, null if the file failed
+  private final int[] sizes; // number of items of each cart
+  private final String[] errors; // error message of each failed file, null if it was loaded
+  private final long[] bytes; // size in bytes of each file loaded
+  private long elapsedNanos; // duration of the load
+
+  /**
+   * Creates the result of the load of the given files, before any of them is loaded
+   *
+   * @param files the files to load
+   */
+  CartSummaryLoadResult(File[] files) {
+    this.files = files;
+    this.carts = new String[files.length][];
+    this.sizes = new int[files.length];
+    this.errors = new String[files.length];
+    this.bytes = new long[files.length];
+  }
+
+  /**
+   * Records the cart loaded from a file. Each file is recorded by one thread only.
+   *
+   * @param index index of the file
+   * @param cart  the cart loaded from the file
+   * @param size  the number of items in the cart
+   * @param bytes size of the file in bytes
+   */
+  void fileLoaded(int index, String[] cart, int size, long bytes) {
+    this.carts[index] = cart;
+    this.sizes[index] = size;
+    this.bytes[index] = bytes;
+  }
+
+  /**
+   * Records a file which could not be loaded. Each file is recorded by one thread only.
+   *
+   * @param index   index of the file
+   * @param message descriptive error message
+   */
+  void fileFailed(int index, String message) {
+    this.errors[index] = message;
+  }
+
+  /**
+   * Records the duration of the load
+   *
+   * @param elapsedNanos duration of the load in nanoseconds
+   */
+  void finished(long elapsedNanos) {
+    this.elapsedNanos = elapsedNanos;
+  }
+
+  /**
+   * Returns the number of files of the load
+   *
+   * @return the number of files of the load
+   */
+  public int size() {
+    return files.length;
+  }
+
+  /**
+   * Returns a file of the load
+   *
+   * @param index index of the file
+   * @return the file
+   */
+  public File getFile(int index) {
+    return files[index];
+  }
+
+  /**
+   * Returns the cart loaded from a file
+   *
+   * @param index index of the file
+   * @return an array of strings which contains the names of the items of the cart, or null if the
+   *         file could not be loaded
+   */
+  public String[] getCart(int index) {
+    return carts[index];
+  }
+
+  /**
+   * Returns the number of items of the cart loaded from a file
+   *
+   * @param index index of the file
+   * @return the number of items in the cart, zero if the file could not be loaded
+   */
+  public int getSize(int index) {
+    return sizes[index];
+  }
+
+  /**
+   * Returns the error message of a file which could not be loaded
+   *
+   * @param index index of the file
+   * @return the error message, or null if the file was loaded
+   */
+  public String getError(int index) {
+    return errors[index];
+  }
+
+  /**
+   * Returns the number of files loaded
+   *
+   * @return the number of files loaded
+   */
+  public int getLoaded() {
+    return files.length - getFailed();
+  }
+
+  /**
+   * Returns the number of files which could not be loaded
+   *
+   * @return the number of files which could not be loaded
+   */
+  public int getFailed() {
+    int failed = 0;
+    for (String error : errors) {
+      if (error != null) {
+        failed++;
+      }
+    }
+    return failed;
+  }
+
+  /**
+   * Returns the number of bytes of the files loaded
+   *
+   * @return the number of bytes read
+   */
+  public long getBytes() {
+    long total = 0;
+    for (long fileBytes : bytes) {
+      total += fileBytes;
+    }
+    return total;
+  }
+
+  /**
+   * Returns the duration of the load
+   *
+   * @return the duration of the load in milliseconds
+   */
+  public long getElapsedMillis() {
+    return elapsedNanos / 1000000;
+  }
+
+  /**
+   * Returns the number of files processed per second
+   *
+   * @return the throughput of the load in files per second
+   */
+  public double getFilesPerSecond() {
+    return elapsedNanos == 0 ? 0 : files.length * 1e9 / elapsedNanos;
+  }
+
+  /**
+   * Returns a short summary of this load
+   *
+   * @return "loaded: N, failed: M, B bytes in T ms (F files/s)"
+   */
+  @Override
+  public String toString() {
+    return "loaded: " + getLoaded() + ", failed: " + getFailed() + ", " + getBytes() + " bytes in "
+        + getElapsedMillis() + " ms (" + Math.round(getFilesPerSecond()) + " files/s)";
+  }
+}
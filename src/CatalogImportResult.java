@@ -0,0 +1,82 @@
+//////////////// FILE HEADER (INCLUDE IN EVERY FILE) //////////////////////////
+//
+// Title: CatalogImportResult.java
+///////////////////////////////////////////////////////////////////////////////
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This class reports the outcome of a bulk import of items into the market catalog: the number of
+ * rows imported, the number of rows rejected, and a descriptive error message for each rejected
+ * row (up to MAX_ERRORS messages).
+ *
+ * @author Marin Suzuki
+ */
+public class CatalogImportResult {
+
+  // maximum number of error messages kept, so that a bad file cannot exhaust the memory
+  public static final int MAX_ERRORS = 1000;
+
+  private int imported; // number of rows added to the catalog
+  private int rejected; // number of rows which failed validation
+  private final List<String> errors = new ArrayList<String>();
+
+  /**
+   * Records one imported row
+   */
+  void rowImported() {
+    imported++;
+  }
+
+  /**
+   * Records one rejected row
+   *
+   * @param lineNumber line number of the row in the imported file, starting at 1
+   * @param message    descriptive error message
+   */
+  void rowRejected(int lineNumber, String message) {
+    rejected++;
+    if (errors.size() < MAX_ERRORS) {
+      errors.add("line " + lineNumber + ": " + message);
+    }
+  }
+
+  /**
+   * Returns the number of rows added to the catalog
+   *
+   * @return the number of rows added to the catalog
+   */
+  public int getImported() {
+    return imported;
+  }
+
+  /**
+   * Returns the number of rows which failed validation
+   *
+   * @return the number of rows which failed validation
+   */
+  public int getRejected() {
+    return rejected;
+  }
+
+  /**
+   * Returns the error messages of the first MAX_ERRORS rejected rows, in file order
+   *
+   * @return an unmodifiable list of "line N: message" strings
+   */
+  public List<String> getErrors() {
+    return Collections.unmodifiableList(errors);
+  }
+
+  /**
+   * Returns a short summary of this import
+   *
+   * @return "imported: N, rejected: M"
+   */
+  @Override
+  public String toString() {
+    return "imported: " + imported + ", rejected: " + rejected;
+  }
+}
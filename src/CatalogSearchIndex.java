@@ -0,0 +1,238 @@
+//////////////// FILE HEADER (INCLUDE IN EVERY FILE) //////////////////////////
+//
+// Title: CatalogSearchIndex.java
+///////////////////////////////////////////////////////////////////////////////
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * This class is a sorted index of the item names of one catalog snapshot, used to find the items
+ * whose name starts with a given prefix. Names are kept twice: in their exact order and folded to
+ * lower case, for case-insensitive searches. A prefix search is a binary search for the first
+ * matching name followed by a walk over the next ones. A fuzzy search also accepts names starting
+ * with a string at edit distance 1 from the prefix (one character substituted, inserted or
+ * deleted); it scans the names in order and is only used when there are not enough exact matches.
+ *
+ * Only the first row of each name is indexed, like CatalogSnapshot.rowOfName(). The index is
+ * immutable and can be shared between threads. It is built incrementally: the index of a new
+ * snapshot merges the rows added since the index of an older snapshot into it.
+ *
+ * @author Marin Suzuki
+ */
+class CatalogSearchIndex {
+
+  private final int[] rows; // rows of the indexed items, sorted by name
+  private final String[] names; // names[i] is the name of the item at rows[i]
+  private final int[] foldedRows; // rows of the indexed items, sorted by lower case name
+  private final String[] foldedNames; // foldedNames[i] is the lower case name of foldedRows[i]
+  private final int coveredRows; // number of catalog rows covered by this index
+
+  /**
+   * Builds the search index of the given catalog snapshot from the index of an older snapshot of
+   * the same catalog. Since items are only appended and prices do not change names, only the rows
+   * added since the older index are sorted, then inserted into its sorted names.
+   *
+   * @param catalog catalog snapshot to index
+   * @param base    search index of an older snapshot of the catalog, or null to index all the rows
+   */
+  CatalogSearchIndex(CatalogSnapshot catalog, CatalogSearchIndex base) {
+    int from = base == null ? 0 : base.coveredRows;
+    int[] added = new int[catalog.size() - from];
+    int count = 0;
+    for (int row = from; row < catalog.size(); row++) {
+      if (catalog.rowOfName(catalog.getName(row)) == row) { // first row with this name
+        added[count++] = row;
+      }
+    }
+    String[] addedNames = new String[count];
+    String[] addedFolded = new String[count];
+    for (int i = 0; i < count; i++) {
+      addedNames[i] = catalog.getName(added[i]);
+      addedFolded[i] = addedNames[i].toLowerCase(Locale.ROOT);
+    }
+
+    int baseCount = base == null ? 0 : base.rows.length;
+    rows = new int[baseCount + count];
+    names = new String[baseCount + count];
+    foldedRows = new int[baseCount + count];
+    foldedNames = new String[baseCount + count];
+    coveredRows = catalog.size();
+
+    // names are unique in the index; equal lower case names are ordered by name
+    merge(catalog, base == null ? names : base.names, base == null ? rows : base.rows, baseCount,
+        addedNames, addedNames, added, count, names, rows);
+    merge(catalog, base == null ? foldedNames : base.foldedNames,
+        base == null ? foldedRows : base.foldedRows, baseCount, addedFolded, addedNames, added,
+        count, foldedNames, foldedRows);
+  }
+
+  /**
+   * Merges the sorted keys of an older index with the keys of the added rows into keys and rows,
+   * ordered by key, then by name
+   *
+   * @param catalog    catalog snapshot holding the rows
+   * @param baseKeys   sorted keys of the older index
+   * @param baseRows   rows of the keys of the older index
+   * @param baseCount  number of keys of the older index
+   * @param addedKeys  keys of the added rows, in row order
+   * @param addedNames names of the added rows, in row order
+   * @param added      the added rows
+   * @param count      number of added rows
+   * @param keys       the merged keys
+   * @param rows       the rows of the merged keys
+   */
+  private static void merge(CatalogSnapshot catalog, String[] baseKeys, int[] baseRows,
+      int baseCount, String[] addedKeys, String[] addedNames, int[] added, int count,
+      String[] keys, int[] rows) {
+    int[] order = new int[count];
+    for (int i = 0; i < count; i++) {
+      order[i] = i;
+    }
+    sort(order, new int[count], 0, count, addedKeys, addedNames);
+
+    // copy the runs of base keys between the insertion points of the added keys, found by binary
+    // search, so that merging a few added rows costs little more than copying the arrays
+    int copied = 0; // number of base keys copied
+    for (int j = 0; j < count; j++) {
+      String key = addedKeys[order[j]];
+      String name = addedNames[order[j]];
+      int low = copied;
+      int high = baseCount;
+      while (low < high) { // first base key after the added key
+        int middle = (low + high) >>> 1;
+        if (compare(baseKeys[middle], catalog.getName(baseRows[middle]), key, name) <= 0) {
+          low = middle + 1;
+        } else {
+          high = middle;
+        }
+      }
+      System.arraycopy(baseKeys, copied, keys, copied + j, low - copied);
+      System.arraycopy(baseRows, copied, rows, copied + j, low - copied);
+      copied = low;
+      keys[copied + j] = key;
+      rows[copied + j] = added[order[j]];
+    }
+    System.arraycopy(baseKeys, copied, keys, copied + count, baseCount - copied);
+    System.arraycopy(baseRows, copied, rows, copied + count, baseCount - copied);
+  }
+
+  /**
+   * Sorts order[from] to order[to - 1], indexes of keys, by key then by name, with a merge sort
+   * using buffer, so that no row is boxed
+   */
+  private static void sort(int[] order, int[] buffer, int from, int to, String[] keys,
+      String[] names) {
+    if (to - from < 2) {
+      return;
+    }
+    int middle = (from + to) >>> 1;
+    sort(order, buffer, from, middle, keys, names);
+    sort(order, buffer, middle, to, keys, names);
+    if (compare(keys[order[middle - 1]], names[order[middle - 1]], keys[order[middle]],
+        names[order[middle]]) <= 0) {
+      return; // already in order
+    }
+    System.arraycopy(order, from, buffer, from, to - from);
+    int i = from;
+    int j = middle;
+    for (int k = from; k < to; k++) {
+      if (j == to || i < middle
+          && compare(keys[buffer[i]], names[buffer[i]], keys[buffer[j]], names[buffer[j]]) <= 0) {
+        order[k] = buffer[i++];
+      } else {
+        order[k] = buffer[j++];
+      }
+    }
+  }
+
+  /**
+   * Compares two keys, then their names if the keys are equal
+   */
+  private static int compare(String key, String name, String otherKey, String otherName) {
+    int comparison = key.compareTo(otherKey);
+    return comparison != 0 ? comparison : name.compareTo(otherName);
+  }
+
+  /**
+   * Returns the rows of at most max items whose name starts with the given prefix, sorted by name.
+   * With fuzzy matching, the exact matches are followed by the names starting with a string at
+   * edit distance 1 from the prefix, also sorted by name.
+   *
+   * @param prefix     beginning of the names to find
+   * @param max        maximum number of rows to return
+   * @param ignoreCase true to compare the names ignoring case
+   * @param fuzzy      true to also return names at edit distance 1 from the prefix
+   * @return the rows of the matching items, best matches first
+   */
+  int[] search(String prefix, int max, boolean ignoreCase, boolean fuzzy) {
+    String[] keys = ignoreCase ? foldedNames : names;
+    int[] keyRows = ignoreCase ? foldedRows : rows;
+    String key = ignoreCase ? prefix.toLowerCase(Locale.ROOT) : prefix;
+
+    int[] found = new int[Math.min(max, keys.length)];
+    int count = 0;
+
+    // exact prefix matches form one range of the sorted names
+    int first = firstNotBefore(keys, key);
+    int end = first;
+    while (end < keys.length && count < found.length && keys[end].startsWith(key)) {
+      found[count++] = keyRows[end++];
+    }
+
+    if (fuzzy) {
+      for (int i = 0; i < keys.length && count < found.length; i++) {
+        if ((i < first || i >= end) && isAtEditDistanceOne(key, keys[i])) {
+          found[count++] = keyRows[i];
+        }
+      }
+    }
+    return Arrays.copyOf(found, count);
+  }
+
+  /**
+   * Returns the index of the first key which is not before the given key
+   *
+   * @param keys sorted keys
+   * @param key  key to find
+   * @return the index of the first key greater than or equal to key, or keys.length if none
+   */
+  private static int firstNotBefore(String[] keys, String key) {
+    int low = 0;
+    int high = keys.length;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (keys[middle].compareTo(key) < 0) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Checks whether name starts with a string at edit distance exactly 1 from prefix: one character
+   * of the prefix substituted, deleted, or one character inserted into it
+   *
+   * @param prefix prefix to match
+   * @param name   name to check
+   * @return true if a prefix of name is at edit distance 1 from prefix, and false otherwise
+   */
+  static boolean isAtEditDistanceOne(String prefix, String name) {
+    int length = prefix.length();
+    int i = 0;
+    while (i < length && i < name.length() && prefix.charAt(i) == name.charAt(i)) {
+      i++;
+    }
+    if (i == length) {
+      return false; // name starts with prefix: edit distance 0
+    }
+    if (i == name.length()) {
+      return length - i == 1; // name is prefix without its last character
+    }
+    return name.regionMatches(i + 1, prefix, i + 1, length - i - 1) // substitution
+        || name.regionMatches(i, prefix, i + 1, length - i - 1) // deletion
+        || name.regionMatches(i + 1, prefix, i, length - i); // insertion
+  }
+}
@@ -0,0 +1,543 @@
+//////////////// FILE HEADER (INCLUDE IN EVERY FILE) //////////////////////////
+//
+// Title: CatalogSnapshot.java
+///////////////////////////////////////////////////////////////////////////////
+
+/**
+ * This class is a snapshot of the market catalog used by ExceptionalShoppingCart. A snapshot holds
+ * the catalog rows, their prices in cents, and the name and id indexes. The rows covered by a
+ * published snapshot are never modified, so readers on any thread can keep using the snapshot they
+ * read without locking.
+ * 
+ * Snapshots share their columns: adding an item writes it into the first free row (the row at
+ * index size) and returns a new snapshot with a larger size, so the catalog grows in amortized
+ * constant time. Rows at or after the size of a snapshot are ignored by that snapshot, even if a
+ * later snapshot has filled them. When the columns are full they are copied into columns twice as
+ * large. Since items are never removed, the free rows always form the tail of the columns.
+ * 
+ * The public methods give callers a read-only view of the catalog which they can iterate without
+ * copying it, for example with ExceptionalShoppingCart.getMarketCatalog(). Each published snapshot
+ * has a version greater than the previous one, so callers can skip work if the catalog has not
+ * changed since the version they last processed.
+ * 
+ * Prices only change through withPrices(), which copies the columns and publishes all the changes
+ * of a batch at once in a new price epoch. A reader holding a snapshot keeps seeing the prices of
+ * its epoch, so a whole cart can be priced consistently.
+ *
+ * @author Marin Suzuki
+ */
+public class CatalogSnapshot {
+
+  // ids are 4-digits int, so there are only MAX_ID - MIN_ID + 1 possible keys
+  static final int MIN_ID = 1000;
+  static final int MAX_ID = 9999;
+
+  // items[i][0] String representation of the item key, items[i][1] the item name, items[i][2]
+  // String representation of the unit price in dollars
+  private final String[][] items;
+
+  // unit price in cents of the item stored at the same row of items
+  private final long[] priceCents;
+
+  // nameSlots is an open addressing hash table of the item names, holding rows plus one (zero:
+  // free slot), which also resolves a name held in a range of characters without creating a
+  // String. It has at least twice as many slots as items has rows, and is rebuilt when the columns
+  // are doubled
+  // idSlots[id - MIN_ID] holds the row of the item with that id plus one (zero: no such item)
+  // only the first row with a given name or id is indexed; the indexes are shared by all the
+  // snapshots and may hold rows which are past the size of an older snapshot
+  private final int[] nameSlots;
+  private final int[] idSlots;
+
+  // number of items in the catalog, which is also the first free row of items
+  private final int size;
+
+  // version of the catalog, incremented each time a snapshot is published
+  private final long version;
+
+  // price epoch of the catalog, incremented each time a batch of prices is changed
+  private final long priceEpoch;
+
+  // sorted index of the names of this snapshot, built on the first search from searchBase
+  private volatile CatalogSearchIndex searchIndex;
+
+  // latest search index built for an older snapshot of this catalog, or null
+  private final CatalogSearchIndex searchBase;
+
+  /**
+   * Creates a snapshot of the given catalog rows. Rows are used as is and must not be modified
+   * afterwards; the catalog ends at the first null row.
+   *
+   * @param items catalog rows {id, name, price}, followed by null rows of free capacity
+   * @throws NumberFormatException if an id or a price is not parsable
+   */
+  CatalogSnapshot(String[][] items) {
+    this(items, parsePricesCents(items), 1, 1);
+  }
+
+  /**
+   * Creates a snapshot of the given catalog rows and prices in cents, in the given version and
+   * price epoch. Rows are used as is and must not be modified afterwards; the catalog ends at the
+   * first null row.
+   *
+   * @param items      catalog rows {id, name, price}, followed by null rows of free capacity
+   * @param priceCents price in cents of the item at the same row of items
+   * @param version    version of the snapshot
+   * @param priceEpoch price epoch of the snapshot
+   * @throws NumberFormatException if an id is not parsable
+   */
+  CatalogSnapshot(String[][] items, long[] priceCents, long version, long priceEpoch) {
+    int count = 0;
+    while (count < items.length && items[count] != null) {
+      count++;
+    }
+    this.items = items;
+    this.priceCents = priceCents;
+    this.nameSlots = new int[nameSlotsFor(items.length)];
+    this.idSlots = new int[MAX_ID - MIN_ID + 1];
+    this.size = count;
+    this.version = version;
+    this.priceEpoch = priceEpoch;
+    this.searchBase = null;
+    for (int i = 0; i < count; i++) {
+      index(i);
+    }
+  }
+
+  /**
+   * Converts the prices of the given catalog rows to cents
+   *
+   * @param items catalog rows {id, name, price}, followed by null rows
+   * @return the price in cents of each row
+   * @throws NumberFormatException if a price is not parsable
+   */
+  private static long[] parsePricesCents(String[][] items) {
+    long[] cents = new long[items.length];
+    for (int i = 0; i < items.length && items[i] != null; i++) {
+      cents[i] = parsePriceCents(items[i][2]);
+    }
+    return cents;
+  }
+
+  /**
+   * Creates a snapshot made of the given columns and indexes
+   */
+  private CatalogSnapshot(String[][] items, long[] priceCents, int[] nameSlots, int[] idSlots,
+      int size, long version, long priceEpoch, CatalogSearchIndex searchBase) {
+    this.items = items;
+    this.priceCents = priceCents;
+    this.nameSlots = nameSlots;
+    this.idSlots = idSlots;
+    this.size = size;
+    this.version = version;
+    this.priceEpoch = priceEpoch;
+    this.searchBase = searchBase;
+  }
+
+  /**
+   * Returns the latest search index built for this snapshot or an older one, or null if there is
+   * none
+   */
+  private CatalogSearchIndex latestSearchIndex() {
+    CatalogSearchIndex index = searchIndex;
+    return index != null ? index : searchBase;
+  }
+
+  /**
+   * Converts a String representation of a price in dollars ("$x.yy") to a number of cents
+   *
+   * @param price price in dollars, starting with $
+   * @return the price rounded to the nearest cent
+   * @throws NumberFormatException if the price is not parsable to double
+   */
+  static long parsePriceCents(String price) {
+    return toCents(Double.parseDouble(price.substring(1))); // index 0 of price is $
+  }
+
+  /**
+   * Converts a price in dollars to a number of cents
+   *
+   * @param dollars price in dollars
+   * @return the price rounded to the nearest cent
+   */
+  static long toCents(double dollars) {
+    return Math.round(dollars * 100);
+  }
+
+  /**
+   * Adds the item stored at the given row to the name and id indexes. A name or id which is
+   * already indexed keeps pointing to its first row. Only called by the writer, before the
+   * snapshot covering row is published.
+   *
+   * @param row row of the item to index
+   */
+  private void index(int row) {
+    addNameSlot(row);
+    int slot = Integer.parseInt(items[row][0]) - MIN_ID;
+    if (idSlots[slot] == 0) {
+      idSlots[slot] = row + 1;
+    }
+  }
+
+  /**
+   * Returns a new snapshot made of this catalog followed by the given item. The item is written to
+   * the first free row; the columns are doubled first if this catalog is full. The arguments must
+   * already be validated, and this must be the latest snapshot: callers hold the writer lock.
+   *
+   * @param id        id of the item to add
+   * @param name      name of the item to add
+   * @param price     price of the item to add
+   * @param itemCents price of the item to add in cents
+   * @return a new snapshot containing the added item
+   */
+  CatalogSnapshot withItem(String id, String name, String price, long itemCents) {
+    CatalogSnapshot target = ensureCapacity(size + 1);
+    target.items[size] = new String[] {id, name, price};
+    target.priceCents[size] = itemCents;
+    target.index(size);
+    return new CatalogSnapshot(target.items, target.priceCents, target.nameSlots, idSlots,
+        size + 1, version + 1, priceEpoch, latestSearchIndex());
+  }
+
+  /**
+   * Returns a new snapshot made of this catalog followed by the first count given items. The
+   * columns are doubled as many times as needed, and the indexes are built in a single pass over
+   * the new items. The arguments must already be validated, and this must be the latest snapshot:
+   * callers hold the writer lock.
+   *
+   * @param newRows      items {id, name, price} to add
+   * @param newRowsCents prices in cents of the items to add
+   * @param count        number of items to add
+   * @return a new snapshot containing the added items
+   */
+  CatalogSnapshot withItems(String[][] newRows, long[] newRowsCents, int count) {
+    CatalogSnapshot target = ensureCapacity(size + count);
+    System.arraycopy(newRows, 0, target.items, size, count);
+    System.arraycopy(newRowsCents, 0, target.priceCents, size, count);
+    for (int i = size; i < size + count; i++) {
+      target.index(i);
+    }
+    return new CatalogSnapshot(target.items, target.priceCents, target.nameSlots, idSlots,
+        size + count, version + 1, priceEpoch, latestSearchIndex());
+  }
+
+  /**
+   * Returns a new snapshot of this catalog where the items at the given rows have new prices. The
+   * columns are copied, so that snapshots of the previous price epoch are left unchanged, and all
+   * the changes are published at once. The arguments must already be validated, and this must be
+   * the latest snapshot: callers hold the writer lock.
+   *
+   * @param rows     rows of the items whose price changes
+   * @param prices   new prices of the items, starting with $
+   * @param newCents new prices of the items in cents
+   * @param count    number of prices to change
+   * @return a new snapshot, in a new price epoch, holding the new prices
+   */
+  CatalogSnapshot withPrices(int[] rows, String[] prices, long[] newCents, int count) {
+    String[][] newItems = items.clone();
+    long[] newPriceCents = priceCents.clone();
+    for (int i = 0; i < count; i++) {
+      String[] item = newItems[rows[i]];
+      newItems[rows[i]] = new String[] {item[0], item[1], prices[i]};
+      newPriceCents[rows[i]] = newCents[i];
+    }
+    CatalogSnapshot next = new CatalogSnapshot(newItems, newPriceCents, nameSlots, idSlots, size,
+        version + 1, priceEpoch + 1, searchBase);
+    next.searchIndex = searchIndex; // names do not change: the search index still holds
+    return next;
+  }
+
+  /**
+   * Returns this snapshot if its columns have room for the given number of rows, or else a
+   * snapshot of the same items whose columns are doubled as many times as needed. The name hash
+   * table is rebuilt for the new capacity; older snapshots keep the table they were built with.
+   *
+   * @param capacity number of rows needed
+   * @return a snapshot of this catalog with at least capacity rows
+   */
+  private CatalogSnapshot ensureCapacity(int capacity) {
+    if (capacity <= items.length) {
+      return this;
+    }
+    int newCapacity = Math.max(items.length, 1);
+    while (newCapacity < capacity) {
+      newCapacity *= 2;
+    }
+    String[][] newItems = new String[newCapacity][];
+    long[] newPriceCents = new long[newCapacity];
+    System.arraycopy(items, 0, newItems, 0, size);
+    System.arraycopy(priceCents, 0, newPriceCents, 0, size);
+    CatalogSnapshot target = new CatalogSnapshot(newItems, newPriceCents,
+        new int[nameSlotsFor(newCapacity)], idSlots, size, version, priceEpoch, searchBase);
+    for (int row = 0; row < size; row++) {
+      target.addNameSlot(row);
+    }
+    return target;
+  }
+
+  /**
+   * Returns the number of slots of the name hash table of columns of the given capacity: the
+   * smallest power of two at least twice the capacity, so that the table is never more than half
+   * full
+   */
+  private static int nameSlotsFor(int capacity) {
+    return Integer.highestOneBit(Math.max(capacity, 1) * 2 - 1) * 2;
+  }
+
+  /**
+   * Adds the name of the item stored at the given row to the name hash table, in the first free
+   * slot from its hash, unless the name is already indexed. Only called by the writer, in row
+   * order, so a name keeps pointing to its first row.
+   *
+   * @param row row of the item to index
+   */
+  private void addNameSlot(int row) {
+    String name = items[row][1];
+    int mask = nameSlots.length - 1;
+    int slot = spread(name.hashCode()) & mask;
+    while (nameSlots[slot] != 0) {
+      if (items[nameSlots[slot] - 1][1].equals(name)) {
+        return; // already indexed
+      }
+      slot = (slot + 1) & mask;
+    }
+    nameSlots[slot] = row + 1;
+  }
+
+  /**
+   * Spreads the high bits of a hash code to the low bits used to pick a slot
+   */
+  private static int spread(int hash) {
+    return hash ^ (hash >>> 16);
+  }
+
+  /**
+   * Returns the number of items in this catalog. Items are at rows 0 to size() - 1.
+   *
+   * @return the number of items in this catalog
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the version of this catalog. A snapshot published later has a greater version.
+   *
+   * @return the version of this catalog
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * Returns the price epoch of this catalog. The prices of the items only change when the price
+   * epoch changes.
+   *
+   * @return the price epoch of this catalog
+   */
+  public long getPriceEpoch() {
+    return priceEpoch;
+  }
+
+  /**
+   * Returns whether this catalog is a different version than the given one
+   *
+   * @param version version of a catalog snapshot, as returned by getVersion()
+   * @return true if this catalog has changed since the given version, and false otherwise
+   */
+  public boolean hasChangedSince(long version) {
+    return this.version != version;
+  }
+
+  /**
+   * Returns the String representation of the id of the item at the given row
+   *
+   * @param row row of the item, from 0 to size() - 1
+   * @return the id of the item at row
+   * @throws IndexOutOfBoundsException if row is not the row of an item
+   */
+  public String getId(int row) {
+    return checkedItem(row)[0];
+  }
+
+  /**
+   * Returns the name of the item at the given row
+   *
+   * @param row row of the item, from 0 to size() - 1
+   * @return the name of the item at row
+   * @throws IndexOutOfBoundsException if row is not the row of an item
+   */
+  public String getName(int row) {
+    return checkedItem(row)[1];
+  }
+
+  /**
+   * Returns the String representation of the unit price in dollars of the item at the given row
+   *
+   * @param row row of the item, from 0 to size() - 1
+   * @return the price of the item at row, starting with $
+   * @throws IndexOutOfBoundsException if row is not the row of an item
+   */
+  public String getPrice(int row) {
+    return checkedItem(row)[2];
+  }
+
+  /**
+   * Returns the unit price in cents of the item at the given row
+   *
+   * @param row row of the item, from 0 to size() - 1
+   * @return the price in cents of the item at row
+   * @throws IndexOutOfBoundsException if row is not the row of an item
+   */
+  public long getPriceCents(int row) {
+    checkedItem(row);
+    return priceCents[row];
+  }
+
+  /**
+   * Returns the item at the given row, checking that the row is covered by this snapshot
+   *
+   * @param row row of the item
+   * @return the item at row
+   * @throws IndexOutOfBoundsException if row is not the row of an item
+   */
+  private String[] checkedItem(int row) {
+    if (row < 0 || row >= size) {
+      throw new IndexOutOfBoundsException("row " + row + " is out of the catalog");
+    }
+    return items[row];
+  }
+
+  /**
+   * Returns the number of rows, used or free, of this catalog
+   *
+   * @return the capacity of this catalog
+   */
+  int capacity() {
+    return items.length;
+  }
+
+  /**
+   * Returns the row of the first item with the given name
+   *
+   * @param name name of the item to find
+   * @return the row of the item, or -1 if no item has this name
+   */
+  int rowOfName(String name) {
+    if (name == null) {
+      return -1;
+    }
+    return rowOfName(name.hashCode(), name, 0, name.length());
+  }
+
+  /**
+   * Returns the row of the first item whose name is the given range of characters, without
+   * creating a String. The range is hashed like String.hashCode(), then the name hash table is
+   * probed from that slot until a free slot, skipping the rows past the size of this snapshot.
+   *
+   * @param text characters holding the name to find
+   * @param from index of the first character of the name in text
+   * @param to   index after the last character of the name in text
+   * @return the row of the item, or -1 if no item has this name
+   */
+  int rowOfName(CharSequence text, int from, int to) {
+    int hash = 0;
+    for (int i = from; i < to; i++) {
+      hash = 31 * hash + text.charAt(i);
+    }
+    return rowOfName(hash, text, from, to);
+  }
+
+  /**
+   * Probes the name hash table for the range of characters with the given String.hashCode()
+   *
+   * @param hash hash of the name, as given by String.hashCode()
+   * @param text characters holding the name to find
+   * @param from index of the first character of the name in text
+   * @param to   index after the last character of the name in text
+   * @return the row of the item, or -1 if no item covered by this snapshot has this name
+   */
+  private int rowOfName(int hash, CharSequence text, int from, int to) {
+    int mask = nameSlots.length - 1;
+    for (int slot = spread(hash) & mask; nameSlots[slot] != 0; slot = (slot + 1) & mask) {
+      int row = nameSlots[slot] - 1;
+      if (row < size && nameEquals(items[row][1], text, from, to)) {
+        return row;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Checks whether a name is made of the given range of characters
+   */
+  private static boolean nameEquals(String name, CharSequence text, int from, int to) {
+    if (name.length() != to - from) {
+      return false;
+    }
+    for (int i = 0; i < name.length(); i++) {
+      if (name.charAt(i) != text.charAt(from + i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the name search index of this snapshot, building it on the first call by merging the
+   * rows added since the latest index of an older snapshot. Concurrent first calls may each build
+   * an index; they are all equivalent.
+   *
+   * @return the name search index of this snapshot
+   */
+  CatalogSearchIndex searchIndex() {
+    CatalogSearchIndex index = searchIndex;
+    if (index == null) {
+      index = new CatalogSearchIndex(this, searchBase);
+      searchIndex = index;
+    }
+    return index;
+  }
+
+  /**
+   * Returns the row of the first item with the given id
+   *
+   * @param id 4-digits id of the item to find
+   * @return the row of the item, or -1 if no item has this id
+   */
+  int rowOfId(int id) {
+    int row = idSlots[id - MIN_ID] - 1;
+    return row >= size ? -1 : row;
+  }
+
+  /**
+   * Returns the item stored at the given row as {id, name, price}. The returned array is shared and
+   * must not be modified.
+   *
+   * @param row row of the item
+   * @return the item at row, or null if row is free
+   */
+  String[] item(int row) {
+    return row < size ? items[row] : null;
+  }
+
+  /**
+   * Returns the unit price in cents of the item at the given row
+   *
+   * @param row row of the item
+   * @return the unit price in cents of the item at row
+   */
+  long priceCents(int row) {
+    return priceCents[row];
+  }
+
+  /**
+   * Returns the string representation "itemId name itemPrice" of the item at the given row
+   *
+   * @param row row of the item
+   * @return "itemId name itemPrice" of the item stored at row
+   */
+  String format(int row) {
+    return items[row][0] + " " + items[row][1] + " " + items[row][2];
+  }
+}
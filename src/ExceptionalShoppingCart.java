@@ -3,20 +3,41 @@
 // Title: ExceptionalShoppingCart.java
 ///////////////////////////////////////////////////////////////////////////////
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileWriter;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
 import java.io.PrintWriter;
 import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.DataFormatException;
-import java.util.Scanner;
+import java.util.stream.IntStream;
 
 /**
  * This class contains the methods for getting copy of items in the market, looking up product by
- * name or id and returning a string representation of the item, finding the index of the first null
- * position that can be used to add new market, getting its price of a given item, adding or
- * removing item to a cart, getting the price in dollars of a market item, appending an item to a
+ * name or id and returning a string representation of the item, adding new items to the market one
+ * at a time or in bulk from a file, getting its price of a given item, adding or removing item to a
+ * cart, getting the price in dollars of a market item, appending an item to a
  * given cart, counting the number of occurrences of a given item within a cart, checking whether a
  * cart contains at least one occurrence of a given item, calculating the total value in dollars of
  * the cart, removing all the items in cart, and getting summary of the contents of a given cart,
@@ -28,14 +49,27 @@ import java.util.Scanner;
 public class ExceptionalShoppingCart {
 
   // Define final parameters (constants)
-  private static final double TAX_RATE = 0.05; // sales tax
-
-  // a perfect-size two-dimensional array that stores the list of available items in a given market
-  // MarketItems[i][0] refers to a String representation of the item key (unique identifier)
-  // MarketItems[i][1] refers the item name
-  // MarketItems[i][2] a String representation of the unit price of the item in dollars
-  private static String[][] marketItems =
-      new String[][] {{"4390", "Apple", "$1.59"}, {"4046", "Avocado", "$0.59"},
+
+  // size of the buffer used to stream a cart summary to a file, in bytes
+  private static final int SUMMARY_BUFFER_BYTES = 8192;
+
+  // size in bytes from which a cart summary file is memory-mapped by loadCartSummaries()
+  static final long MAPPED_SUMMARY_BYTES = 1 << 20;
+
+  // status codes returned by tryParseCartSummaryLine(), all below any size of cart
+  static final int PARSE_WRONG_FORMAT = Integer.MIN_VALUE;
+  static final int PARSE_NOT_IN_MARKET = Integer.MIN_VALUE + 1;
+  static final int PARSE_CART_FULL = Integer.MIN_VALUE + 2;
+
+  // the list of available items in a given market, as an immutable snapshot
+  // Each row of the catalog is {id, name, price} where
+  // row[0] refers to a String representation of the item key (unique identifier)
+  // row[1] refers the item name
+  // row[2] a String representation of the unit price of the item in dollars
+  // Readers use the snapshot they read without locking. Writers hold the class lock, build a new
+  // snapshot and publish it by assigning this volatile field.
+  private static volatile CatalogSnapshot catalog =
+      new CatalogSnapshot(new String[][] {{"4390", "Apple", "$1.59"}, {"4046", "Avocado", "$0.59"},
           {"4011", "Banana", "$0.49"}, {"4500", "Beef", "$3.79"}, {"4033", "Blueberry", "$6.89"},
           {"4129", "Broccoli", "$1.79"}, {"4131", "Butter", "$4.59"}, {"4017", "Carrot", "$1.19"},
           {"3240", "Cereal", "$3.69"}, {"3560", "Cheese", "$3.49"}, {"3294", "Chicken", "$5.09"},
@@ -43,7 +77,7 @@ public class ExceptionalShoppingCart {
           {"3033", "Eggs", "$3.09"}, {"4770", "Grape", "$2.29"}, {"3553", "Ice Cream", "$5.39"},
           {"3117", "Milk", "$2.09"}, {"3437", "Mushroom", "$1.79"}, {"4663", "Onion", "$0.79"},
           {"4030", "Pepper", "$1.99"}, {"3890", "Pizza", "$11.5"}, {"4139", "Potato", "$0.69"},
-          {"3044", "Spinach", "$3.09"}, {"4688", "Tomato", "$1.79"}, null, null, null, null};
+          {"3044", "Spinach", "$3.09"}, {"4688", "Tomato", "$1.79"}, null, null, null, null});
 
   /**
    * Creates a deep copy of the market catalog
@@ -51,17 +85,63 @@ public class ExceptionalShoppingCart {
    * @return Returns a deep copy of the market catalog 2D array of strings
    */
   public static String[][] getCopyOfMarketItems() { //TODO
-    String[][] copy = new String[marketItems.length][];
-    for (int i = 0; i < marketItems.length; i++) {
-      if (marketItems[i] != null) {
-        copy[i] = new String[marketItems[i].length];
-        for (int j = 0; j < marketItems[i].length; j++)
-          copy[i][j] = marketItems[i][j];
-      }
+    CatalogSnapshot snapshot = catalog;
+    String[][] copy = new String[snapshot.capacity()][];
+    for (int i = 0; i < snapshot.size(); i++) {
+      String[] item = snapshot.item(i);
+      copy[i] = new String[item.length];
+      for (int j = 0; j < item.length; j++)
+        copy[i][j] = item[j];
     }
     return copy;
   }
 
+  /**
+   * Returns a read-only view of the market catalog. The view is not a copy: it is the current
+   * catalog snapshot, which never changes once returned, so it can be iterated from row 0 to
+   * size() - 1 without locking or copying. Items added later are published in new snapshots.
+   * 
+   * @return the current snapshot of the market catalog
+   */
+  public static CatalogSnapshot getMarketCatalog() {
+    return catalog;
+  }
+
+  /**
+   * Checks whether the market catalog has changed since the given version was read
+   * 
+   * @param version version of a catalog snapshot, as returned by CatalogSnapshot.getVersion()
+   * @return true if the market catalog has changed since the given version, and false otherwise
+   */
+  public static boolean hasMarketCatalogChangedSince(long version) {
+    return catalog.hasChangedSince(version);
+  }
+
+  /**
+   * Returns the SKU (catalog row) of the market item with the given name, without throwing when
+   * there is no such item. Prefer it to the lookup methods on paths where misses are common.
+   *
+   * @param name name of the item to find
+   * @return the SKU of the item, or -1 if no item of the market has this name
+   */
+  public static int findProductSku(String name) {
+    return catalog.rowOfName(name);
+  }
+
+  /**
+   * Returns the SKU (catalog row) of the market item with the given id, without throwing when
+   * there is no such item
+   *
+   * @param key id of the item to find
+   * @return the SKU of the item, or -1 if key is not a 4-digits int or no item has this id
+   */
+  public static int findProductSkuById(int key) {
+    if (key > CatalogSnapshot.MAX_ID || key < CatalogSnapshot.MIN_ID) {
+      return -1;
+    }
+    return catalog.rowOfId(key);
+  }
+
   /**
    * Returns a string representation of the item whose name is provided as input TODO
    *
@@ -73,10 +153,10 @@ public class ExceptionalShoppingCart {
     String s = "No match found";
 
     // when item is found
-    for (int i = 0; i < marketItems.length; i++) {
-      if (marketItems[i] != null && name != null && name.equals(marketItems[i][1])) {
-        return marketItems[i][0] + " " + marketItems[i][1] + " " + marketItems[i][2];
-      }
+    CatalogSnapshot snapshot = catalog;
+    int row = snapshot.rowOfName(name);
+    if (row >= 0) {
+      return snapshot.format(row);
     }
 
     // throws NoSuchElementException with descriptive error message if no match found
@@ -97,43 +177,78 @@ public class ExceptionalShoppingCart {
       throws IllegalArgumentException, NoSuchElementException {
 
     // throws IllegalArgumentException with descriptive error message if key is not a 4-digits int
-    if (key > 9999 || key < 1000) {
+    if (key > CatalogSnapshot.MAX_ID || key < CatalogSnapshot.MIN_ID) {
       throw new IllegalArgumentException("id should be 4-digits int");
     }
 
     // throws NoSuchElementException with descriptive error message if no match found
     String s = "No match found";
 
-    for (int i = 0; i < marketItems.length; i++) {
-      if (marketItems[i] != null) {
-        if (marketItems[i][0].equals(String.valueOf(key)))
-          return marketItems[i][0] + " " + marketItems[i][1] + " " + marketItems[i][2];
-      }
+    CatalogSnapshot snapshot = catalog;
+    int row = snapshot.rowOfId(key);
+    if (row >= 0) {
+      return snapshot.format(row);
     }
     // key of item is not found in market
     throw new NoSuchElementException(s);
   }
 
   /**
-   * Returns the index of the first null position that can be used to add new market items returns
-   * the length of MarketItems if no available null position is found
+   * Returns a string representation of at most max items whose name starts with the given prefix,
+   * sorted by name. The search uses a sorted index of the names, built once per catalog version on
+   * the first search. If ignoreCase is true, names and prefix are compared ignoring case. If fuzzy
+   * is true and fewer than max names start with prefix, the result is completed with the names
+   * starting with a string at edit distance 1 from prefix (one character substituted, inserted or
+   * deleted). If prefix is null or max is less than one, IllegalArgumentException will be thrown.
    * 
-   * @return returns an available position to add new market items or the length of market items if
-   *         no available positions are found
+   * @param prefix     beginning of the names of the items to find
+   * @param max        maximum number of items to return
+   * @param ignoreCase true to compare names ignoring case
+   * @param fuzzy      true to also return names at edit distance 1 from prefix
+   * @return "itemId name itemPrice" of the matching items, best matches first
+   * @throws IllegalArgumentException with descriptive error message if prefix is null or max is
+   *                                  less than one
    */
-  private static int indexOfInsertionPos() {
-    for (int i = 0; i < marketItems.length; i++) {
-      if (marketItems[i] == null)
-        return i;
+  public static String[] searchProductsByPrefix(String prefix, int max, boolean ignoreCase,
+      boolean fuzzy) {
+    // throws IllegalArgumentException with descriptive error message if prefix is null or max is
+    // less than one
+    if (prefix == null) {
+      throw new IllegalArgumentException("prefix should not be null");
+    }
+    if (max < 1) {
+      throw new IllegalArgumentException("max should be more than zero");
     }
-    return marketItems.length;
+
+    CatalogSnapshot snapshot = catalog;
+    int[] rows = snapshot.searchIndex().search(prefix, max, ignoreCase, fuzzy);
+    String[] found = new String[rows.length];
+    for (int i = 0; i < rows.length; i++) {
+      found[i] = snapshot.format(rows[i]);
+    }
+    return found;
   }
 
   /**
-   * Add a new item to market items array, expand the capacity of marketitems if it is full when
-   * trying to add new item, use indexofInsertionPos() to find the position to add. If id is not
-   * parsable to 4-digits int, name is null or empty string, price is not parsable to double,
-   * IllegalArgumentException will be thrown.
+   * Returns a string representation of at most max items whose name starts with the given prefix
+   * (exact, case-sensitive match), sorted by name.
+   * 
+   * @param prefix beginning of the names of the items to find
+   * @param max    maximum number of items to return
+   * @return "itemId name itemPrice" of the matching items, sorted by name
+   * @throws IllegalArgumentException with descriptive error message if prefix is null or max is
+   *                                  less than one
+   */
+  public static String[] searchProductsByPrefix(String prefix, int max) {
+    return searchProductsByPrefix(prefix, max, false, false);
+  }
+
+  /**
+   * Add a new item to the market catalog, in the first free row of the catalog. The capacity of
+   * the catalog is doubled if it is full when trying to add new item, so that adding an item takes
+   * amortized constant time. If id is not parsable to 4-digits int, name is null or empty string,
+   * price is not parsable to double, IllegalArgumentException will be thrown. Concurrent calls are
+   * serialized; readers see either the catalog before or after the item is added.
    * 
    * @param id    id of the item to add
    * @param name  name of the item to add
@@ -143,59 +258,204 @@ public class ExceptionalShoppingCart {
    *                                            is not parsable to double
    * 
    */
-  public static void addItemToMarketCatalog(String id, String name, String price) {
+  public static synchronized void addItemToMarketCatalog(String id, String name,
+      String price) {
 
-    int next = indexOfInsertionPos();
+    long priceCents = validateMarketItem(id, name, price);
+    catalog = catalog.withItem(id, name, price, priceCents); // publish the new snapshot
+  }
+
+  /**
+   * Changes the prices of a batch of market items, given their ids, as one atomic update. All the
+   * ids and prices are validated first: if any id is not a 4-digits int matching an item, or any
+   * price is not parsable to positive double, IllegalArgumentException will be thrown and no price
+   * changes. Otherwise all the new prices are published at once in a new price epoch. Readers never
+   * block: a checkout running concurrently prices the whole cart either with all the old prices or
+   * with all the new ones. If an id appears more than once, its last price is kept.
+   * 
+   * @param ids    ids of the items whose price changes
+   * @param prices new prices of the items, starting with $, in the same order as ids
+   * @throws IllegalArgumentException with descriptive error message if ids and prices do not have
+   *                                  the same length, an id is not the id of an item or a price is
+   *                                  not parsable to positive double
+   */
+  public static synchronized void updateProductPrices(int[] ids, String[] prices) {
+    // throws IllegalArgumentException with descriptive error message if ids and prices do not
+    // have the same length
+    if (ids.length != prices.length) {
+      throw new IllegalArgumentException("ids and prices should have the same length");
+    }
+
+    CatalogSnapshot snapshot = catalog;
+    int[] rows = new int[ids.length];
+    long[] newCents = new long[ids.length];
+    for (int i = 0; i < ids.length; i++) {
+      // throws IllegalArgumentException with descriptive error message if an id is not the id of
+      // an item
+      if (ids[i] > CatalogSnapshot.MAX_ID || ids[i] < CatalogSnapshot.MIN_ID
+          || snapshot.rowOfId(ids[i]) < 0) {
+        throw new IllegalArgumentException("no item has id " + ids[i]);
+      }
+      rows[i] = snapshot.rowOfId(ids[i]);
+      newCents[i] = validatePrice(prices[i]);
+    }
+    catalog = snapshot.withPrices(rows, prices, newCents, ids.length); // publish the new epoch
+  }
 
+  /**
+   * Checks that the given item can be added to the market catalog, parsing its id and price only
+   * once. If id is not parsable to 4-digits int, name is null or empty string, price is not
+   * parsable to positive double, IllegalArgumentException will be thrown.
+   * 
+   * @param id    id of the item to add
+   * @param name  name of the item to add
+   * @param price price of the item to add
+   * @return the price of the item in cents
+   * @throws java.lang.IllegalArgumentException with descriptive error message if id is not parsable
+   *                                            to 4-digits int, name is null or empty string, price
+   *                                            is not parsable to positive double
+   */
+  private static long validateMarketItem(String id, String name, String price) {
     // throws IllegalArgumentException with descriptive error message if id is not parsable to int
+    int idInt;
     try {
-      int idInt = Integer.parseInt(id);
+      idInt = Integer.parseInt(id);
     } catch (NumberFormatException e) {
       throw new IllegalArgumentException("id is not parsable to int");
     }
 
     // throws IllegalArgumentException with descriptive error message if id is not
     // 4-digits int in string
-    if ((Integer.parseInt(id) > 9999) || (Integer.parseInt(id) < 1000)) {
+    if (idInt > CatalogSnapshot.MAX_ID || idInt < CatalogSnapshot.MIN_ID) {
       throw new IllegalArgumentException("id should be 4 digit int in String");
     }
 
     // throws IllegalArgumentException with descriptive error message if name is null
     // or empty string
-    if (name == null || name == "") {
+    if (name == null || name.isEmpty()) {
       throw new IllegalArgumentException("name should not be null or empty string");
     }
 
+    return validatePrice(price);
+  }
+
+  /**
+   * Checks that the given price is parsable to positive double. If not, IllegalArgumentException
+   * will be thrown.
+   * 
+   * @param price price of an item, starting with $
+   * @return the price in cents
+   * @throws java.lang.IllegalArgumentException with descriptive error message if price is not
+   *                                            parsable to positive double
+   */
+  private static long validatePrice(String price) {
     // throws IllegalArgumentException with descriptive error message if price is not
     // parsable to double
+    double priceDouble;
     try {
-      Double idDouble = Double.parseDouble(price.substring(1)); // index 0 of price is $
-    } catch (NumberFormatException e) {
+      priceDouble = Double.parseDouble(price.substring(1)); // index 0 of price is $
+    } catch (NumberFormatException | StringIndexOutOfBoundsException e) {
       throw new IllegalArgumentException("price is not parsable to double");
     }
 
     // throws IllegalArgumentException with descriptive error message if price is not
     // parsable to positive double
-    if (Double.parseDouble(price.substring(1)) < 0) { // first index is $
+    if (priceDouble < 0) {
       throw new IllegalArgumentException("price is not parsable to positive double");
     }
+    return CatalogSnapshot.toCents(priceDouble);
+  }
+
+  /**
+   * Adds all the items listed in a CSV or TSV file to the market catalog. The file is read line by
+   * line: each line holds id, name and price separated by a tab, or by a comma if the line has no
+   * tab (fields are not quoted). Blank lines, lines starting with # and a first line starting with
+   * the "id" header are skipped. Each row is validated with the same rules as
+   * addItemToMarketCatalog(); invalid rows are reported in the returned result and do not abort the
+   * import. The valid rows are published to the catalog at once, after the whole file is read, and
+   * the indexes are built in a single pass.
+   * 
+   * @param file CSV or TSV file to import
+   * @return the number of imported and rejected rows, with an error message per rejected row
+   * @throws IOException if the file cannot be read
+   */
+  public static CatalogImportResult importMarketCatalog(File file) throws IOException {
+    CatalogImportResult result = new CatalogImportResult();
+    String[][] rows = new String[1024][];
+    long[] rowsCents = new long[rows.length];
+    int count = 0;
+
+    try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+      int lineNumber = 0;
+      String line;
+      while ((line = reader.readLine()) != null) {
+        lineNumber++;
+        if (line.isEmpty() || line.charAt(0) == '#'
+            || lineNumber == 1 && line.regionMatches(true, 0, "id", 0, 2)) {
+          continue; // blank line, comment or header
+        }
 
-    // marketItem is full
-    if (next == marketItems.length) {
-      System.out.println("Full catalog! No further item can be added!");
-      String[][] expandedMarketItems = new String[marketItems.length * 2][]; // expand
-      for (int i = 0; i < marketItems.length; i++) {
-        if (marketItems[i] != null) {
-          expandedMarketItems[i] = new String[marketItems[i].length];
-          for (int j = 0; j < marketItems[i].length; j++)
-            expandedMarketItems[i][j] = marketItems[i][j];
-          expandedMarketItems[next] = new String[] {id, name, price};
+        char delimiter = line.indexOf('\t') >= 0 ? '\t' : ',';
+        int first = line.indexOf(delimiter);
+        int second = first < 0 ? -1 : line.indexOf(delimiter, first + 1);
+        if (second < 0 || line.indexOf(delimiter, second + 1) >= 0) {
+          result.rowRejected(lineNumber, "row should have 3 fields: id, name, price");
+          continue;
+        }
+        String id = line.substring(0, first).trim();
+        String name = line.substring(first + 1, second).trim();
+        String price = line.substring(second + 1).trim();
+
+        try {
+          rowsCents[count] = validateMarketItem(id, name, price);
+        } catch (IllegalArgumentException e) {
+          result.rowRejected(lineNumber, e.getMessage());
+          continue;
+        }
+        rows[count] = new String[] {id, name, price};
+        count++;
+        result.rowImported();
+
+        if (count == rows.length) { // expand
+          rows = Arrays.copyOf(rows, rows.length * 2);
+          rowsCents = Arrays.copyOf(rowsCents, rows.length);
         }
       }
-      marketItems = expandedMarketItems;
-    } else {
-      marketItems[next] = new String[] {id, name, price};
     }
+
+    synchronized (ExceptionalShoppingCart.class) {
+      catalog = catalog.withItems(rows, rowsCents, count); // publish the new snapshot
+    }
+    return result;
+  }
+
+  /**
+   * Saves the market catalog to a binary catalog file, which can be memory-mapped and queried in
+   * place with MappedCatalog.open().
+   * 
+   * @param file the file to save the market catalog
+   * @throws IOException if the file cannot be written
+   */
+  public static void saveBinaryMarketCatalog(File file) throws IOException {
+    MappedCatalog.write(catalog, file);
+  }
+
+  /**
+   * Replaces the market catalog with the items of a binary catalog file saved by
+   * saveBinaryMarketCatalog(). The file is memory-mapped and checked, then its records are copied
+   * into a new snapshot without parsing any price or building the catalog row by row. The items
+   * are then held on the Java heap like any other catalog, so loading still takes time in
+   * proportion to the size of the catalog. The new catalog is published at once, in a new version
+   * and price epoch. SKUs are rows of the catalog, so this is meant to be called at startup,
+   * before any cart holds a SKU.
+   * 
+   * @param file the binary catalog file to load
+   * @throws IOException if the file cannot be read, is not a binary catalog file or is corrupted
+   */
+  public static synchronized void loadBinaryMarketCatalog(File file) throws IOException {
+    CatalogSnapshot snapshot = catalog;
+    catalog = MappedCatalog.open(file).toSnapshot(snapshot.getVersion() + 1,
+        snapshot.getPriceEpoch() + 1); // publish the new snapshot
   }
 
   /**
@@ -208,11 +468,10 @@ public class ExceptionalShoppingCart {
    */
   public static double getProductPrice(String name) {
     // throws NoSuchElementException with descriptive error message if price not found
-
-    for (int i = 0; i < marketItems.length; i++) {
-      if (marketItems[i] != null && name.equals(marketItems[i][1])) {
-        return Double.parseDouble(marketItems[i][2].substring(1));
-      }
+    CatalogSnapshot snapshot = catalog;
+    int row = snapshot.rowOfName(name);
+    if (row >= 0) {
+      return snapshot.priceCents(row) / 100.0;
     }
     throw new NoSuchElementException("matched price was not found");
   }
@@ -290,6 +549,22 @@ public class ExceptionalShoppingCart {
    *         zero
    */
   public static boolean contains(String item, String[] cart, int size) {
+    return indexOfItem(item, cart, size) >= 0;
+  }
+
+  /**
+   * Returns the index of the first occurrence of a given item within a cart. If size is less than
+   * zero, IllegalArgumentException will be thrown.
+   * 
+   * @param item the name of the item to search
+   * @param cart an array of strings which contains the names of items in the cart
+   * @param size the number of items in the cart
+   * @return the index of the first occurrence (exact match) of item, or -1 if item is not in the
+   *         cart
+   * @throws java.lang.IllegalArgumentException with descriptive error message if size is less than
+   *                                            zero
+   */
+  public static int indexOfItem(String item, String[] cart, int size) {
     // throws IllegalArgumentException with descriptive error message if size is less than zero
     if (size < 0) {
       throw new IllegalArgumentException("size should be more than or equal to zero");
@@ -297,10 +572,10 @@ public class ExceptionalShoppingCart {
 
     for (int i = 0; i < size; i++) {
       if (cart[i].equals(item)) {
-        return true;
+        return i;
       }
     }
-    return false;
+    return -1;
   }
 
   /**
@@ -319,21 +594,168 @@ public class ExceptionalShoppingCart {
    *                                            the cart
    */
   public static int removeItem(String[] cart, String item, int size) {
-    // throws IllegalArgumentException with descriptive error message if size is less than zero
-    if (size < 0) {
-      throw new IllegalArgumentException("size should be more than or equal to zero");
+    int newSize = tryRemoveItem(cart, item, size);
+
+    // throws NoSuchElementException with descriptive error message if item not found in the cart
+    if (newSize < 0) {
+      throw new NoSuchElementException("item was not found in the cart");
     }
+    return newSize;
+  }
 
-    for (int i = 0; i < size; i++) {
-      if (cart[i].equals(item)) {
-        cart[i] = cart[size - 1]; //TODO
-        cart[size - 1] = null;
-        return size - 1;
+  /**
+   * Removes one occurrence of item from a given cart, like removeItem(), but returns -1 instead of
+   * throwing an exception when item is not found in the cart. If size is less than zero,
+   * IllegalArgumentException will be thrown.
+   * 
+   * @param cart an array of strings which contains the names of items in the cart
+   * @param item the name of the item to remove
+   * @param size the number of items in the cart
+   * @return the size of the oversize array cart after removing item, or -1 if item is not found in
+   *         the cart
+   * @throws java.lang.IllegalArgumentException with descriptive error message if size is less than
+   *                                            zero
+   */
+  public static int tryRemoveItem(String[] cart, String item, int size) {
+    int index = indexOfItem(item, cart, size);
+    if (index < 0) {
+      return -1;
+    }
+
+    cart[index] = cart[size - 1]; //TODO
+    cart[size - 1] = null;
+    return size - 1;
+  }
+
+  /**
+   * Appends quantity units of an item to a given cart in one batch, and returns the new size of
+   * cart. The batch is checked once and then applied as a whole: if it is rejected, the cart is
+   * left unchanged. If size is less than zero or quantity is less than one, or if item is not found
+   * in the market, IllegalArgumentException will be thrown. If the cart cannot hold quantity more
+   * units, IllegalStateException will be thrown.
+   * 
+   * @param item     the name of the product to be added to the cart
+   * @param quantity the number of units of item to add
+   * @param cart     an array of strings which contains the names of items in the cart
+   * @param size     the number of items in the cart
+   * @return the size of the oversize array cart after adding the units to the cart
+   * @throws java.lang.IllegalArgumentException with descriptive error message if size is less than
+   *                                            zero, quantity is less than one or item is not
+   *                                            found in the market
+   * @throws java.lang.IllegalStateException    with descriptive error message if this cart is full
+   */
+  public static int addItems(String item, int quantity, String[] cart, int size) {
+    // throws IllegalArgumentException with descriptive error message if invalid input
+    if (quantity < 1) {
+      throw new IllegalArgumentException("quantity should be more than zero");
+    }
+    checkCapacity(cart.length, size, quantity);
+    if (catalog.rowOfName(item) < 0) {
+      throw new IllegalArgumentException("No matched name of item found in market");
+    }
+
+    Arrays.fill(cart, size, size + quantity, item);
+    return size + quantity;
+  }
+
+  /**
+   * Appends the first count items of an array to a given cart in one batch, and returns the new
+   * size of cart. The batch is checked once and then applied as a whole: if it is rejected, the
+   * cart is left unchanged. If size or count is less than zero, if count is more than the length of
+   * items, or if one of the items is not found in the market, IllegalArgumentException will be
+   * thrown. If the cart cannot hold count more items, IllegalStateException will be thrown.
+   * 
+   * @param items the names of the products to be added to the cart
+   * @param count the number of items to add from items
+   * @param cart  an array of strings which contains the names of items in the cart
+   * @param size  the number of items in the cart
+   * @return the size of the oversize array cart after adding the items to the cart
+   * @throws java.lang.IllegalArgumentException with descriptive error message if size or count is
+   *                                            less than zero, count is more than the length of
+   *                                            items, or an item is not found in the market
+   * @throws java.lang.IllegalStateException    with descriptive error message if this cart is full
+   */
+  public static int addAll(String[] items, int count, String[] cart, int size) {
+    // throws IllegalArgumentException with descriptive error message if invalid input
+    if (count < 0) {
+      throw new IllegalArgumentException("count should be more than or equal to zero");
+    }
+    if (count > items.length) {
+      throw new IllegalArgumentException("count should not be more than the number of items");
+    }
+    checkCapacity(cart.length, size, count);
+    CatalogSnapshot snapshot = catalog;
+    for (int i = 0; i < count; i++) {
+      if (snapshot.rowOfName(items[i]) < 0) {
+        throw new IllegalArgumentException("No matched name of item found in market");
       }
     }
 
+    System.arraycopy(items, 0, cart, size, count);
+    return size + count;
+  }
+
+  /**
+   * Removes quantity occurrences of item from a given cart in one batch, and returns the new size
+   * of cart. The other items of the cart keep their order. If the cart holds fewer than quantity
+   * occurrences of item, NoSuchElementException will be thrown and the cart is left unchanged. If
+   * size is less than zero or quantity is less than one, IllegalArgumentException will be thrown.
+   * 
+   * @param item     the name of the item to remove
+   * @param quantity the number of occurrences of item to remove
+   * @param cart     an array of strings which contains the names of items in the cart
+   * @param size     the number of items in the cart
+   * @return the size of the oversize array cart after removing the occurrences of item
+   * @throws java.lang.IllegalArgumentException with descriptive error message if size is less than
+   *                                            zero or quantity is less than one
+   * @throws java.util.NoSuchElementException   with descriptive error message if fewer than
+   *                                            quantity occurrences of item are in the cart
+   */
+  public static int removeItems(String item, int quantity, String[] cart, int size) {
+    // throws IllegalArgumentException with descriptive error message if invalid input
+    if (quantity < 1) {
+      throw new IllegalArgumentException("quantity should be more than zero");
+    }
+
     // throws NoSuchElementException with descriptive error message if item not found in the cart
-    throw new NoSuchElementException("item was not found in the cart");
+    if (nbOccurrences(item, cart, size) < quantity) {
+      throw new NoSuchElementException("item was not found in the cart");
+    }
+
+    int next = 0;
+    int removed = 0;
+    for (int i = 0; i < size; i++) {
+      if (removed < quantity && cart[i].equals(item)) {
+        removed++;
+      } else {
+        cart[next++] = cart[i];
+      }
+    }
+    Arrays.fill(cart, next, size, null);
+    return next;
+  }
+
+  /**
+   * Checks that a cart of the given size can hold count more items. If size is less than zero,
+   * IllegalArgumentException will be thrown. If it cannot, IllegalStateException will be thrown.
+   *
+   * @param length the length of the oversize array cart
+   * @param size   the number of items in the cart
+   * @param count  the number of items to add
+   * @throws java.lang.IllegalArgumentException with descriptive error message if size is less than
+   *                                            zero
+   * @throws java.lang.IllegalStateException    with descriptive error message if this cart is full
+   */
+  private static void checkCapacity(int length, int size, int count) {
+    // throws IllegalArgumentException with descriptive error message if size is less than zero
+    if (size < 0) {
+      throw new IllegalArgumentException("size should be more than or equal to zero");
+    }
+
+    // throws IllegalStateException with descriptive error message if this cart is full
+    if (count > length - size) {
+      throw new IllegalStateException("the cart is already full");
+    }
   }
 
   /**
@@ -367,7 +789,8 @@ public class ExceptionalShoppingCart {
 
   /**
    * This method returns the total value in dollars of the cart. All products in the market are
-   * taxable (subject to TAX_RATE). If size is less than zero, IllegalArgumentException will be
+   * taxable (subject to MoneyEngine.TAX_RATE), and the tax is rounded once on the whole cart, as
+   * computed by checkoutCents(). If size is less than zero, IllegalArgumentException will be
    * thrown.
    * 
    * @param cart an array of strings which contains the names of items in the cart
@@ -375,96 +798,641 @@ public class ExceptionalShoppingCart {
    * @return Returns the total value in dollars of the cart accounting taxes.
    * @throws java.lang.IllegalArgumentException with descriptive error message if size is less than
    *                                            zero
+   * @throws java.util.NoSuchElementException   with descriptive error message if an item is not
+   *                                            found in the market
    */
   public static double checkout(String[] cart, int size) {
+    return checkoutCents(cart, size) / 100.0;
+  }
+
+  /**
+   * This method returns the exact total value in cents of the cart. The subtotal is the exact sum
+   * of the unit prices in cents, and the sales tax is rounded once on the subtotal. The whole cart
+   * is priced against one catalog snapshot. If size is less than zero, IllegalArgumentException
+   * will be thrown.
+   * 
+   * @param cart an array of strings which contains the names of items in the cart
+   * @param size the number of items in the cart
+   * @return Returns the total value in cents of the cart accounting taxes.
+   * @throws java.lang.IllegalArgumentException with descriptive error message if size is less than
+   *                                            zero
+   * @throws java.util.NoSuchElementException   with descriptive error message if an item is not
+   *                                            found in the market
+   */
+  public static long checkoutCents(String[] cart, int size) {
     // throws IllegalArgumentException with descriptive error message if size is less than zero
     if (size < 0) {
       throw new IllegalArgumentException("size should be more than or equal to zero");
     }
 
-    double total = 0.0;
+    long subtotal = subtotalCents(catalog, cart, size);
+
+    // throws NoSuchElementException with descriptive error message if price not found
+    if (subtotal < 0) {
+      throw new NoSuchElementException("matched price was not found");
+    }
+    return MoneyEngine.totalCents(subtotal);
+  }
+
+  /**
+   * Returns the exact sum in cents of the unit prices of the items of a cart, against the given
+   * catalog snapshot. Every unit of a String[] cart is a line of quantity one.
+   *
+   * @param snapshot catalog snapshot to read the prices from
+   * @param cart     an array of strings which contains the names of items in the cart
+   * @param size     the number of items in the cart, not negative
+   * @return the subtotal of the cart in cents, or -1 if an item is not found in the market
+   */
+  private static long subtotalCents(CatalogSnapshot snapshot, String[] cart, int size) {
+    long subtotal = 0;
     for (int i = 0; i < size; i++) {
-      total += getProductPrice(cart[i]) * (1 + TAX_RATE);
+      int row = snapshot.rowOfName(cart[i]);
+      if (row < 0) {
+        return -1;
+      }
+      subtotal += snapshot.priceCents(row);
     }
-    return total;
+    return subtotal;
   }
 
   /**
-   * Returns a string representation of the summary of the contents of a given cart. The format of
-   * the returned string contains a set of lines where each line contains the number of occurrences
-   * of a given item, between spaces and parentheses, followed by one space followed by the name of
-   * a unique item in the cart. ( #occurrences ) name1 ( #occurrences ) name2 etc. If size is less
-   * than zero, IllegalArgumentException will be thrown.
+   * Checks out a batch of carts: returns the total value in cents of each cart accounting taxes,
+   * and their aggregate. The carts are priced in parallel on the common fork/join pool, all against
+   * the same catalog snapshot, so that concurrent catalog updates cannot make the batch
+   * inconsistent. A cart holding an item not found in the market, or whose size is out of its
+   * array, is rejected and reported in the result instead of failing the batch. If carts or sizes
+   * is null, or if they are not of the same length, IllegalArgumentException will be thrown.
+   * 
+   * @param carts the carts to check out, each an array of strings which contains the names of its
+   *              items
+   * @param sizes the number of items in each cart
+   * @return the totals of the carts and their aggregate
+   * @throws java.lang.IllegalArgumentException with descriptive error message if carts or sizes is
+   *                                            null, or if they are not of the same length
+   */
+  public static BatchCheckoutResult checkoutAll(final String[][] carts, final int[] sizes) {
+    // throws IllegalArgumentException with descriptive error message if invalid input
+    if (carts == null || sizes == null) {
+      throw new IllegalArgumentException("carts and sizes should not be null");
+    }
+    if (carts.length != sizes.length) {
+      throw new IllegalArgumentException("carts and sizes should be of the same length");
+    }
+
+    final CatalogSnapshot snapshot = catalog;
+    final long[] totals = new long[carts.length];
+    IntStream.range(0, carts.length).parallel().forEach(i -> {
+      String[] cart = carts[i];
+      long subtotal = cart == null || sizes[i] < 0 || sizes[i] > cart.length ? -1
+          : subtotalCents(snapshot, cart, sizes[i]);
+      totals[i] = subtotal < 0 ? -1 : MoneyEngine.totalCents(subtotal);
+    });
+    return new BatchCheckoutResult(totals, snapshot.getVersion());
+  }
+
+  /**
+   * Returns the SKU of a market item given its name. SKUs are the dense ordinals (rows) of the
+   * items in the market catalog; they never change once an item is added. If the item is not found
+   * in the market, NoSuchElementException will be thrown.
+   * 
+   * @param name name of the item
+   * @return the SKU of the item
+   * @throws java.util.NoSuchElementException with descriptive error message if item not found
+   */
+  public static int getProductSku(String name) {
+    int sku = findProductSku(name);
+
+    // throws NoSuchElementException with descriptive error message if item not found
+    if (sku < 0) {
+      throw new NoSuchElementException("No match found");
+    }
+    return sku;
+  }
+
+  /**
+   * Returns the name of a market item given its SKU. If sku is not the SKU of an item,
+   * NoSuchElementException will be thrown.
+   * 
+   * @param sku SKU of the item
+   * @return the name of the item
+   * @throws java.util.NoSuchElementException with descriptive error message if item not found
+   */
+  public static String getProductName(int sku) {
+    CatalogSnapshot snapshot = catalog;
+
+    // throws NoSuchElementException with descriptive error message if item not found
+    if (sku < 0 || sku >= snapshot.size()) {
+      throw new NoSuchElementException("No match found");
+    }
+    return snapshot.getName(sku);
+  }
+
+  /**
+   * Converts a String[] cart into an int[] cart of SKUs, item names being translated once here. The
+   * int[] cart can then be used with the int[] versions of addItemToCart(), nbOccurrences(),
+   * contains(), removeItem() and checkoutCents(), which compare SKUs instead of names. If size is
+   * less than zero, IllegalArgumentException will be thrown. If skus is too small,
+   * IllegalStateException will be thrown. If an item is not found in the market,
+   * NoSuchElementException will be thrown.
    * 
    * @param cart an array of strings which contains the names of items in the cart
    * @param size the number of items in the cart
-   * @return Returns a string representation of the summary of the contents of the cart
+   * @param skus an array of int which receives the SKUs of the items in the cart
+   * @return the size of the oversize array skus
    * @throws java.lang.IllegalArgumentException with descriptive error message if size is less than
    *                                            zero
+   * @throws java.lang.IllegalStateException    with descriptive error message if skus is too small
+   * @throws java.util.NoSuchElementException   with descriptive error message if an item is not
+   *                                            found in the market
    */
-  public static String getCartSummary(String[] cart, int size) {
+  public static int toSkuCart(String[] cart, int size, int[] skus) {
     // throws IllegalArgumentException with descriptive error message if size is less than zero
     if (size < 0) {
       throw new IllegalArgumentException("size should be more than or equal to zero");
     }
 
-    String s = "";
+    // throws IllegalStateException with descriptive error message if skus is too small
+    if (size > skus.length) {
+      throw new IllegalStateException("the cart is already full");
+    }
+
+    CatalogSnapshot snapshot = catalog;
     for (int i = 0; i < size; i++) {
-      if (!contains(cart[i], cart, i)) { //TODO
-        s = s + "( " + nbOccurrences(cart[i], cart, size) + " ) " + cart[i] + "\n";
+      skus[i] = snapshot.rowOfName(cart[i]);
+      // throws NoSuchElementException with descriptive error message if item not found
+      if (skus[i] < 0) {
+        throw new NoSuchElementException("No match found");
       }
     }
-    return s.trim(); //TODO
+    return size;
   }
 
   /**
-   * Save the cart summary to a file.
+   * Converts an int[] cart of SKUs back into a String[] cart of item names. If size is less than
+   * zero, IllegalArgumentException will be thrown. If cart is too small, IllegalStateException will
+   * be thrown. If a SKU is not the SKU of a market item, NoSuchElementException will be thrown.
    * 
-   * @param cart an array of strings which contains the names of items in the cart
+   * @param skus an array of int which contains the SKUs of the items in the cart
    * @param size the number of items in the cart
-   * @param file the file to save the cart summary
+   * @param cart an array of strings which receives the names of items in the cart
+   * @return the size of the oversize array cart
    * @throws java.lang.IllegalArgumentException with descriptive error message if size is less than
    *                                            zero
+   * @throws java.lang.IllegalStateException    with descriptive error message if cart is too small
+   * @throws java.util.NoSuchElementException   with descriptive error message if an item is not
+   *                                            found in the market
    */
-  public static void saveCartSummary(String[] cart, int size, File file)
-      throws IllegalArgumentException {
-
-    FileWriter fileWriter = null;
-
+  public static int toNameCart(int[] skus, int size, String[] cart) {
     // throws IllegalArgumentException with descriptive error message if size is less than zero
     if (size < 0) {
       throw new IllegalArgumentException("size should be more than or equal to zero");
     }
 
-    // NO other exception should be thrown by this method
-    // Use finally block to close any resource used to write the cart summary into file
-    try {
-      fileWriter = new FileWriter(file);
-      fileWriter.write(getCartSummary(cart, size)); // write to file
-    } catch (IllegalArgumentException e) {
-      throw new IllegalArgumentException("size should be more than or equal to zero");
-    } catch (IOException e) {
-      System.out.println("IOException occured");
-    } catch (Exception e) {
-      // NO other exception should be thrown by this method
-    } finally {
-    try {
-      if (fileWriter != null) {
-        fileWriter.close(); // close resource
-      }
-    } catch (IOException e) {
-      System.out.println("IOException occured");
+    // throws IllegalStateException with descriptive error message if cart is too small
+    if (size > cart.length) {
+      throw new IllegalStateException("the cart is already full");
     }
+
+    CatalogSnapshot snapshot = catalog;
+    for (int i = 0; i < size; i++) {
+      // throws NoSuchElementException with descriptive error message if item not found
+      if (skus[i] < 0 || skus[i] >= snapshot.size()) {
+        throw new NoSuchElementException("No match found");
+      }
+      cart[i] = snapshot.getName(skus[i]);
     }
+    return size;
   }
 
   /**
-   * Parse one line of cart summary and add nbOccurrences of item to cart Correct formatting for
-   * line:"( " + nbOccurrences + " ) " + itemName Delimiter: one space (multiple spaces: wrong
-   * formatting)
-   *
-   * @param line a line of the cart summary to be parsed into one item to be added
-   * @param cart an array of strings which contains the names of items in the cart
+   * Appends the SKU of an item to a given int[] cart and returns the new size of cart. If the cart
+   * is already full, IllegalStateException will be thrown. If the size is less than zero,
+   * IllegalArgumentException will be thrown.
+   * 
+   * @param sku  the SKU of the product to be added to the cart
+   * @param cart an array of int which contains the SKUs of the items in the cart
+   * @param size the number of items in the cart
+   * @return the size of the oversize array cart after trying to add item to the cart.
+   * @throws java.lang.IllegalArgumentException with descriptive error message if size is less than
+   *                                            zero
+   * @throws java.lang.IllegalStateException    with descriptive error message if this cart is full
+   */
+  public static int addItemToCart(int sku, int[] cart, int size) {
+    // throws IllegalArgumentException with descriptive error message if size is less than zero
+    if (size < 0) {
+      throw new IllegalArgumentException("size should be more than or equal to zero");
+    }
+
+    // throws IllegalStateException with descriptive error message if this cart is full
+    if (size == cart.length) {
+      throw new IllegalStateException("the cart is already full");
+    }
+
+    cart[size] = sku;
+    return size + 1;
+  }
+
+  /**
+   * Appends quantity units of a SKU to a given int[] cart in one batch, and returns the new size of
+   * cart. If the batch is rejected, the cart is left unchanged. If size is less than zero or
+   * quantity is less than one, or if sku is not the SKU of a market item, IllegalArgumentException
+   * will be thrown. If the cart cannot hold quantity more units, IllegalStateException will be
+   * thrown.
+   * 
+   * @param sku      the SKU of the product to be added to the cart
+   * @param quantity the number of units of sku to add
+   * @param cart     an array of int which contains the SKUs of the items in the cart
+   * @param size     the number of items in the cart
+   * @return the size of the oversize array cart after adding the units to the cart
+   * @throws java.lang.IllegalArgumentException with descriptive error message if size is less than
+   *                                            zero, quantity is less than one or sku is not found
+   *                                            in the market
+   * @throws java.lang.IllegalStateException    with descriptive error message if this cart is full
+   */
+  public static int addItems(int sku, int quantity, int[] cart, int size) {
+    // throws IllegalArgumentException with descriptive error message if invalid input
+    if (quantity < 1) {
+      throw new IllegalArgumentException("quantity should be more than zero");
+    }
+    checkCapacity(cart.length, size, quantity);
+    if (sku < 0 || sku >= catalog.size()) {
+      throw new IllegalArgumentException("No matched name of item found in market");
+    }
+
+    Arrays.fill(cart, size, size + quantity, sku);
+    return size + quantity;
+  }
+
+  /**
+   * Returns the number of occurrences of a given SKU within an int[] cart. If size is less than
+   * zero, IllegalArgumentException will be thrown.
+   * 
+   * @param sku  the SKU of the item to search
+   * @param cart an array of int which contains the SKUs of the items in the cart
+   * @param size the number of items in the cart
+   * @return the number of occurrences of sku within the oversize array cart
+   * @throws java.lang.IllegalArgumentException with descriptive error message if size is less than
+   *                                            zero
+   */
+  public static int nbOccurrences(int sku, int[] cart, int size) {
+    // throws IllegalArgumentException with descriptive error message if size is less than zero
+    if (size < 0) {
+      throw new IllegalArgumentException("size should be more than or equal to zero");
+    }
+
+    int count = 0;
+    for (int i = 0; i < size; i++) {
+      count += cart[i] == sku ? 1 : 0;
+    }
+    return count;
+  }
+
+  /**
+   * Checks whether an int[] cart contains at least one occurrence of a given SKU. If size is less
+   * than zero, IllegalArgumentException will be thrown.
+   * 
+   * @param sku  the SKU of the item to search
+   * @param cart an array of int which contains the SKUs of the items in the cart
+   * @param size the number of items in the cart
+   * @return true if sku is found within the provided cart, and false otherwise
+   * @throws java.lang.IllegalArgumentException with descriptive error message if size is less than
+   *                                            zero
+   */
+  public static boolean contains(int sku, int[] cart, int size) {
+    return indexOfItem(sku, cart, size) >= 0;
+  }
+
+  /**
+   * Returns the index of the first occurrence of a given SKU within an int[] cart. If size is less
+   * than zero, IllegalArgumentException will be thrown.
+   * 
+   * @param sku  the SKU of the item to search
+   * @param cart an array of int which contains the SKUs of the items in the cart
+   * @param size the number of items in the cart
+   * @return the index of the first occurrence of sku, or -1 if sku is not in the cart
+   * @throws java.lang.IllegalArgumentException with descriptive error message if size is less than
+   *                                            zero
+   */
+  public static int indexOfItem(int sku, int[] cart, int size) {
+    // throws IllegalArgumentException with descriptive error message if size is less than zero
+    if (size < 0) {
+      throw new IllegalArgumentException("size should be more than or equal to zero");
+    }
+
+    for (int i = 0; i < size; i++) {
+      if (cart[i] == sku) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Removes one occurrence of a given SKU from an int[] cart, replacing it with the last item of
+   * the cart. If size is less than zero, IllegalArgumentException will be thrown. If sku is not
+   * found in the cart, NoSuchElementException will be thrown.
+   * 
+   * @param cart an array of int which contains the SKUs of the items in the cart
+   * @param sku  the SKU of the item to remove
+   * @param size the number of items in the cart
+   * @return Returns the size of the oversize array cart after trying to remove item from the cart.
+   * @throws java.lang.IllegalArgumentException with descriptive error message if size is less than
+   *                                            zero
+   * @throws java.util.NoSuchElementException   with descriptive error message if item not found in
+   *                                            the cart
+   */
+  public static int removeItem(int[] cart, int sku, int size) {
+    int newSize = tryRemoveItem(cart, sku, size);
+
+    // throws NoSuchElementException with descriptive error message if item not found in the cart
+    if (newSize < 0) {
+      throw new NoSuchElementException("item was not found in the cart");
+    }
+    return newSize;
+  }
+
+  /**
+   * Removes one occurrence of a given SKU from an int[] cart, like removeItem(), but returns -1
+   * instead of throwing an exception when sku is not found in the cart. If size is less than zero,
+   * IllegalArgumentException will be thrown.
+   * 
+   * @param cart an array of int which contains the SKUs of the items in the cart
+   * @param sku  the SKU of the item to remove
+   * @param size the number of items in the cart
+   * @return the size of the oversize array cart after removing sku, or -1 if sku is not found in
+   *         the cart
+   * @throws java.lang.IllegalArgumentException with descriptive error message if size is less than
+   *                                            zero
+   */
+  public static int tryRemoveItem(int[] cart, int sku, int size) {
+    int index = indexOfItem(sku, cart, size);
+    if (index < 0) {
+      return -1;
+    }
+
+    cart[index] = cart[size - 1];
+    return size - 1;
+  }
+
+  /**
+   * This method returns the exact total value in cents of an int[] cart, accounting taxes rounded
+   * once on the subtotal. If size is less than zero, IllegalArgumentException will be thrown. If a
+   * SKU is not the SKU of a market item, NoSuchElementException will be thrown.
+   * 
+   * @param cart an array of int which contains the SKUs of the items in the cart
+   * @param size the number of items in the cart
+   * @return Returns the total value in cents of the cart accounting taxes.
+   * @throws java.lang.IllegalArgumentException with descriptive error message if size is less than
+   *                                            zero
+   * @throws java.util.NoSuchElementException   with descriptive error message if an item is not
+   *                                            found in the market
+   */
+  public static long checkoutCents(int[] cart, int size) {
+    // throws IllegalArgumentException with descriptive error message if size is less than zero
+    if (size < 0) {
+      throw new IllegalArgumentException("size should be more than or equal to zero");
+    }
+
+    CatalogSnapshot snapshot = catalog;
+    long subtotal = 0;
+    for (int i = 0; i < size; i++) {
+      // throws NoSuchElementException with descriptive error message if item not found
+      if (cart[i] < 0 || cart[i] >= snapshot.size()) {
+        throw new NoSuchElementException("No match found");
+      }
+      subtotal += snapshot.getPriceCents(cart[i]);
+    }
+    return MoneyEngine.totalCents(subtotal);
+  }
+
+  /**
+   * Returns a string representation of the summary of the contents of a given cart. The format of
+   * the returned string contains a set of lines where each line contains the number of occurrences
+   * of a given item, between spaces and parentheses, followed by one space followed by the name of
+   * a unique item in the cart. ( #occurrences ) name1 ( #occurrences ) name2 etc. Items are listed
+   * in the order of their first occurrence in the cart. The summary is built in linear time: the
+   * occurrences are counted in one pass, then the lines are written into a buffer of the exact
+   * size of the summary. If size is less than zero, IllegalArgumentException will be thrown.
+   * 
+   * @param cart an array of strings which contains the names of items in the cart
+   * @param size the number of items in the cart
+   * @return Returns a string representation of the summary of the contents of the cart
+   * @throws java.lang.IllegalArgumentException with descriptive error message if size is less than
+   *                                            zero
+   */
+  public static String getCartSummary(String[] cart, int size) {
+    // throws IllegalArgumentException with descriptive error message if size is less than zero
+    if (size < 0) {
+      throw new IllegalArgumentException("size should be more than or equal to zero");
+    }
+
+    LinkedHashMap<String, int[]> occurrences = countOccurrences(cart, size);
+
+    // presize the buffer: "( " + count + " ) " + name + "\n" for each line
+    int length = 0;
+    for (Map.Entry<String, int[]> line : occurrences.entrySet()) {
+      length += 6 + String.valueOf(line.getValue()[0]).length() + line.getKey().length();
+    }
+
+    StringBuilder summary = new StringBuilder(length);
+    for (Map.Entry<String, int[]> line : occurrences.entrySet()) {
+      summary.append("( ").append(line.getValue()[0]).append(" ) ").append(line.getKey())
+          .append('\n');
+    }
+
+    // drop the trailing whitespace, the only whitespace trim() could remove from the summary
+    int end = summary.length();
+    while (end > 0 && summary.charAt(end - 1) <= ' ') {
+      end--;
+    }
+    summary.setLength(end);
+    return summary.toString();
+  }
+
+  /**
+   * Counts the number of occurrences of each item of a given cart, in a single pass. If the cart
+   * contains a null item, NullPointerException will be thrown.
+   * 
+   * @param cart an array of strings which contains the names of items in the cart
+   * @param size the number of items in the cart
+   * @return the number of occurrences of each item, keyed by item name in the order of their first
+   *         occurrence in the cart
+   * @throws java.lang.NullPointerException with descriptive error message if an item is null
+   */
+  private static LinkedHashMap<String, int[]> countOccurrences(String[] cart, int size) {
+    LinkedHashMap<String, int[]> occurrences = new LinkedHashMap<String, int[]>();
+    for (int i = 0; i < size; i++) {
+      // throws NullPointerException with descriptive error message if an item is null
+      if (cart[i] == null) {
+        throw new NullPointerException("cart should not contain null items");
+      }
+      int[] count = occurrences.get(cart[i]);
+      if (count == null) {
+        occurrences.put(cart[i], new int[] {1});
+      } else {
+        count[0]++;
+      }
+    }
+    return occurrences;
+  }
+
+  /**
+   * Save the cart summary to a file. The summary is the same as the one returned by
+   * getCartSummary(), encoded in UTF-8. Its lines are streamed to the file through a fixed-size
+   * buffer as they are produced, so that the whole summary is never held in memory.
+   * 
+   * @param cart an array of strings which contains the names of items in the cart
+   * @param size the number of items in the cart
+   * @param file the file to save the cart summary
+   * @throws java.lang.IllegalArgumentException with descriptive error message if size is less than
+   *                                            zero
+   */
+  public static void saveCartSummary(String[] cart, int size, File file)
+      throws IllegalArgumentException {
+
+    Writer fileWriter = null;
+
+    // throws IllegalArgumentException with descriptive error message if size is less than zero
+    if (size < 0) {
+      throw new IllegalArgumentException("size should be more than or equal to zero");
+    }
+
+    // NO other exception should be thrown by this method
+    // Use finally block to close any resource used to write the cart summary into file
+    try {
+      fileWriter = newCartSummaryWriter(file);
+      writeCartSummary(countOccurrences(cart, size), fileWriter); // write to file
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("size should be more than or equal to zero");
+    } catch (IOException e) {
+      System.out.println("IOException occured");
+    } catch (Exception e) {
+      // NO other exception should be thrown by this method
+    } finally {
+    try {
+      if (fileWriter != null) {
+        fileWriter.close(); // close resource
+      }
+    } catch (IOException e) {
+      System.out.println("IOException occured");
+    }
+    }
+  }
+
+  /**
+   * Opens a cart summary file for writing, replacing its content. The text is encoded in UTF-8
+   * and written through a fixed-size buffer.
+   *
+   * @param file the cart summary file
+   * @return a writer to the file
+   * @throws IOException if the file cannot be opened
+   */
+  private static Writer newCartSummaryWriter(File file) throws IOException {
+    return newCartSummaryWriter(FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING));
+  }
+
+  /**
+   * Returns a writer encoding a cart summary in UTF-8 to the given channel, through a fixed-size
+   * buffer. Closing the writer closes the channel.
+   *
+   * @param channel the channel of the cart summary file, open for writing
+   * @return a writer to the channel
+   */
+  private static Writer newCartSummaryWriter(FileChannel channel) {
+    return Channels.newWriter(channel,
+        StandardCharsets.UTF_8.newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE),
+        SUMMARY_BUFFER_BYTES);
+  }
+
+  /**
+   * Save the cart summary to a file like saveCartSummary(), but let the caller handle the errors.
+   * The file is replaced atomically and durably: the summary is written to the sibling file
+   * file.tmp, forced to the storage device, then renamed over file. A crash while saving leaves
+   * either the previous summary or the new one, never a truncated file. The cart is checked before
+   * any file is opened, so a cart holding a null item leaves the file unchanged.
+   *
+   * @param cart an array of strings which contains the names of items in the cart
+   * @param size the number of items in the cart
+   * @param file the file to save the cart summary
+   * @throws IOException if the file cannot be written
+   */
+  static void writeCartSummaryFile(String[] cart, int size, File file) throws IOException {
+    LinkedHashMap<String, int[]> occurrences = countOccurrences(cart, size);
+    Path temp = new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".tmp").toPath();
+    boolean moved = false;
+    try {
+      try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+          StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+          Writer out = newCartSummaryWriter(channel)) {
+        writeCartSummary(occurrences, out);
+        out.flush();
+        channel.force(true);
+      }
+      Files.move(temp, file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+          StandardCopyOption.REPLACE_EXISTING);
+      moved = true;
+    } finally {
+      if (!moved) {
+        Files.deleteIfExists(temp);
+      }
+    }
+  }
+
+  /**
+   * Writes the summary of the given occurrences, line by line, in the format of getCartSummary():
+   * one "( " + nbOccurrences + " ) " + itemName line per item, without trailing whitespace at the
+   * end of the summary.
+   *
+   * @param occurrences the number of occurrences of each item, in the order of the summary
+   * @param out         the writer to write the summary to
+   * @throws IOException if the summary cannot be written
+   */
+  private static void writeCartSummary(LinkedHashMap<String, int[]> occurrences, Writer out)
+      throws IOException {
+    Iterator<Map.Entry<String, int[]>> lines = occurrences.entrySet().iterator();
+    while (lines.hasNext()) {
+      Map.Entry<String, int[]> line = lines.next();
+      writeCartSummaryLine(line.getKey(), line.getValue()[0], !lines.hasNext(), out);
+    }
+  }
+
+  /**
+   * Writes one "( " + nbOccurrences + " ) " + itemName line of a cart summary, followed by a new
+   * line unless it is the last line of the summary
+   *
+   * @param name  the name of the item
+   * @param count the number of occurrences of the item
+   * @param last  whether this is the last line of the summary
+   * @param out   the writer to write the line to
+   * @throws IOException if the line cannot be written
+   */
+  private static void writeCartSummaryLine(String name, int count, boolean last, Writer out)
+      throws IOException {
+    out.write("( ");
+    out.write(Integer.toString(count));
+    if (!last) {
+      out.write(" ) ");
+      out.write(name);
+      out.write('\n');
+    } else { // last line: drop its trailing whitespace, as trim() would
+      int end = name.length();
+      while (end > 0 && name.charAt(end - 1) <= ' ') {
+        end--;
+      }
+      out.write(end > 0 ? " ) " : " )");
+      out.write(name, 0, end);
+    }
+  }
+
+  /**
+   * Parse one line of cart summary and add nbOccurrences of item to cart Correct formatting for
+   * line:"( " + nbOccurrences + " ) " + itemName Delimiter: one space (multiple spaces: wrong
+   * formatting)
+   *
+   * @param line a line of the cart summary to be parsed into one item to be added
+   * @param cart an array of strings which contains the names of items in the cart
    * @param size the number of items in the cart
    * @return Returns the size of the cart after adding items to the cart
    * @throws DataFormatException      with descriptive error message if wrong formatting (including
@@ -476,71 +1444,176 @@ public class ExceptionalShoppingCart {
    */
   protected static int parseCartSummaryLine(String line, String[] cart, int size)
       throws DataFormatException, IllegalArgumentException, IllegalStateException {
+    int newSize = tryParseCartSummaryLine(line, cart, size);
 
-    int newSize = size;
-    String[] parsedLine;
+    // throws DataFormatException with descriptive error message if wrong formatting
+    if (newSize == PARSE_WRONG_FORMAT) {
+      throw new DataFormatException("wrong formatting");
+    }
 
-    try {
+    // throws IllegalArgumentException with descriptive error message if itemName not found in
+    // marketItems
+    if (newSize == PARSE_NOT_IN_MARKET) {
+      throw new IllegalArgumentException("No matched name of item found in market");
+    }
 
-      parsedLine = line.split(" "); //TODO
+    // throws IllegalStateException with descriptive error message if cart reaches its capacity
+    if (newSize == PARSE_CART_FULL) {
+      throw new IllegalStateException("cart is already full");
+    }
+    return newSize;
+  }
 
-      // throws DataFormatException with descriptive error message if wrong formatting
-      if ((parsedLine.length != 4) || (!parsedLine[0].equals("("))
-          || (!parsedLine[2].equals(")"))) {
-        throw new DataFormatException("summary has a wrong formatting");
-      }
+  /**
+   * Parses one line of cart summary and adds nbOccurrences of item to cart, like
+   * parseCartSummaryLine(), but returns a status code instead of throwing an exception when the
+   * line is rejected: PARSE_WRONG_FORMAT, PARSE_NOT_IN_MARKET or PARSE_CART_FULL. When the cart
+   * gets full, the units which fit have been added to it. A null line or cart is ignored.
+   *
+   * @param line a line of the cart summary to be parsed into one item to be added
+   * @param cart an array of strings which contains the names of items in the cart
+   * @param size the number of items in the cart
+   * @return the size of the cart after adding items to the cart, or a PARSE_ status code
+   */
+  static int tryParseCartSummaryLine(String line, String[] cart, int size) {
+    if (line == null) {
+      return size;
+    }
+    return tryParseCartSummaryLine(line, 0, line.length(), cart, size);
+  }
 
-      // Check if nbOccurrences is parsable to int
-      try {
-        int idInt = Integer.parseInt(parsedLine[1]);
-      } catch (NumberFormatException e) {
-        throw new DataFormatException("wrong formatting");
-      }
+  /**
+   * Parses the line of cart summary held in text between from and to, and adds nbOccurrences of
+   * item to cart, like tryParseCartSummaryLine(String, String[], int). The line is parsed in one
+   * pass and its item name is resolved through the name hash table of the catalog, so that no
+   * object is created: the names added to the cart are the ones of the catalog. A line is accepted
+   * exactly when line.split(" ") would give the 4 fields "(", nbOccurrences, ")" and itemName.
+   *
+   * @param text characters holding the line
+   * @param from index of the first character of the line in text
+   * @param to   index after the last character of the line in text
+   * @param cart an array of strings which contains the names of items in the cart
+   * @param size the number of items in the cart
+   * @return the size of the cart after adding items to the cart, or a PARSE_ status code
+   */
+  static int tryParseCartSummaryLine(CharSequence text, int from, int to, String[] cart,
+      int size) {
+    CatalogSnapshot snapshot = catalog;
+    long units = parseCartSummaryUnits(text, from, to, snapshot);
+    if (units < 0) { // PARSE_WRONG_FORMAT or PARSE_NOT_IN_MARKET
+      return (int) units;
+    }
+    int row = (int) (units >>> 32);
+    int count = (int) units;
 
-      // Check if nbOccurrences is positive integer and less than 11
-      if (Integer.parseInt(parsedLine[1]) <= 0 || Integer.parseInt(parsedLine[1]) > 10) {
-        throw new DataFormatException("wrong formatting");
-      }
+    if (cart == null) {
+      return size;
+    }
+    if (size < 0 || size > cart.length) { // size out of the cart: nothing added
+      return size + 1; // as returned by the legacy parser
+    }
 
-      // throws IllegalArgumentException with descriptive error message if itemName not found in
-      // marketItems
-      boolean itemNameFound = false;
+    // add all the units which fit in one batch, then report if some did not
+    int added = Math.min(count, cart.length - size);
+    Arrays.fill(cart, size, size + added, snapshot.getName(row));
+    return added == count ? size + count : PARSE_CART_FULL;
+  }
 
-      for (int i = 0; i < marketItems.length; i++) {
-        if (marketItems[i] != null && parsedLine[3] != null
-            && parsedLine[3].equals(marketItems[i][1])) {
-          itemNameFound = true; // matched item found
-        }
-      }
-      if (itemNameFound == false) { // matched item was not found
-        throw new IllegalArgumentException("No matched name of item found in market");
-      }
+  /**
+   * Parses the line of cart summary held in text between from and to, as
+   * tryParseCartSummaryLine(CharSequence, int, int, String[], int) does, and returns the row of
+   * its item and its number of units without adding them to any cart
+   *
+   * @param text     characters holding the line
+   * @param from     index of the first character of the line in text
+   * @param to       index after the last character of the line in text
+   * @param snapshot catalog snapshot resolving the item name
+   * @return the row of the item in the high 32 bits and nbOccurrences in the low 32 bits, or
+   *         PARSE_WRONG_FORMAT or PARSE_NOT_IN_MARKET, both negative, if the line is rejected
+   */
+  private static long parseCartSummaryUnits(CharSequence text, int from, int to,
+      CatalogSnapshot snapshot) {
+    // "( " opens the line
+    if (to - from < 2 || text.charAt(from) != '(' || text.charAt(from + 1) != ' ') {
+      return PARSE_WRONG_FORMAT;
+    }
 
-      // throws IllegalStateException with descriptive error message if cart reaches its capacity
-      for (int i = 0; i < Integer.parseInt(parsedLine[1]); i++) {
-        if (cart.length == newSize) { // cart is full
-          throw new IllegalStateException("cart is already full");
-        }
-        newSize = size + i + 1; // size increased
-        cart[size + i] = parsedLine[3]; // add item TODO
+    // nbOccurrences, then " ) "
+    int countEnd = indexOfSpace(text, from + 2, to);
+    if (countEnd + 2 >= to || text.charAt(countEnd + 1) != ')'
+        || text.charAt(countEnd + 2) != ' ') {
+      return PARSE_WRONG_FORMAT;
+    }
+    int count = parseOccurrences(text, from + 2, countEnd);
+    if (count == 0) {
+      return PARSE_WRONG_FORMAT;
+    }
+
+    // itemName, not empty, then nothing but trailing spaces
+    int nameStart = countEnd + 3;
+    int nameEnd = indexOfSpace(text, nameStart, to);
+    if (nameEnd == nameStart) {
+      return PARSE_WRONG_FORMAT;
+    }
+    for (int i = nameEnd; i < to; i++) {
+      if (text.charAt(i) != ' ') {
+        return PARSE_WRONG_FORMAT;
       }
-    } catch (IllegalStateException e) {
-      throw new IllegalStateException("cart is already full");
-    } catch (DataFormatException e) {
-      throw new DataFormatException("wrong formatting");
-    } catch (IllegalArgumentException e) {
-      throw new IllegalArgumentException("No matched name of item found in market");
-    } catch (Exception e) {
-      // NO other exception should be thrown by this method
     }
 
-    return newSize;
+    int row = snapshot.rowOfName(text, nameStart, nameEnd);
+    if (row < 0) { // matched item was not found
+      return PARSE_NOT_IN_MARKET;
+    }
+    return (long) row << 32 | count;
+  }
+
+  /**
+   * Returns the index of the first space of text between from and to
+   *
+   * @return the index of the first space, or to if there is none
+   */
+  private static int indexOfSpace(CharSequence text, int from, int to) {
+    while (from < to && text.charAt(from) != ' ') {
+      from++;
+    }
+    return from;
+  }
+
+  /**
+   * Parses nbOccurrences of a line of cart summary without throwing any exception. Accepts the
+   * same strings as Integer.parseInt() (optional sign, decimal digits of any script) whose value
+   * is a positive integer less or equal to 10.
+   *
+   * @param text characters holding nbOccurrences
+   * @param from index of the first character of nbOccurrences in text
+   * @param to   index after the last character of nbOccurrences in text
+   * @return the value of nbOccurrences, or zero if it is not valid
+   */
+  private static int parseOccurrences(CharSequence text, int from, int to) {
+    // a minus sign can only give a value less than one, so only a plus sign is skipped
+    int i = from < to && text.charAt(from) == '+' ? from + 1 : from;
+    if (i == to) {
+      return 0;
+    }
+
+    int value = 0;
+    for (; i < to; i++) {
+      int digit = Character.digit(text.charAt(i), 10);
+      if (digit < 0) {
+        return 0;
+      }
+      value = Math.min(value * 10 + digit, 11); // 11 stands for any value too large
+    }
+    return value <= 10 ? value : 0;
   }
 
   /**
    * Load the cart summary from the file. For each line of summary, add nbOccurrences of item to
-   * cart. Must call parseCartSummaryLine to operate. If size is less than zero,
-   * IllegalArgumentException will be thrown. If cart is full, IllegalStateException will be thrown.
+   * cart. The file is decoded as UTF-8 and read by readCartSummary(): each line is trimmed and
+   * parsed in place by tryParseCartSummaryLine(), and lines which are not valid are skipped. If
+   * size is less than zero, IllegalArgumentException will be thrown. If cart is full,
+   * IllegalStateException will be thrown.
    * 
    * @param file file to load the cart summary from
    * @param cart an array of strings which contains the names of items in the cart
@@ -553,42 +1626,36 @@ public class ExceptionalShoppingCart {
       throws IllegalArgumentException, IllegalStateException {
 
     int newSize = size;
-    Scanner scnr = null;
+    Reader reader = null;
 
     // throws IllegalArgumentException with descriptive error message if size is less than zero
     if (size < 0) {
       throw new IllegalArgumentException("size should be more than or equal to zero");
     }
 
-    // This method MUST call parseCartSummaryLine to operate (to parse each line in file)
     // throws IllegalStateException with descriptive error message if cart reaches its capacity
     // NO other exception should be thrown by this method
     // Use finally block to close any resource used to read from file
     try {
       try {
-        scnr = new Scanner(file);
+        reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8);
       } catch (IOException e) {
         System.out.println("IOEception occured");
+        return newSize;
       }
-      while (scnr.hasNextLine() == true) {
-        try {
-          newSize = parseCartSummaryLine(scnr.nextLine().trim(), cart, newSize);
-        } catch (DataFormatException e) { // catch exception thrown by parseCartSummaryLine
-        } catch (IllegalArgumentException e) {
-          // catch exception thrown by parseCartSummaryLine
-        } catch (IllegalStateException e) {
-          throw new IllegalStateException("cart is full");
-        } catch (Exception e) {
-          // NO other exception should be thrown by this method
-        }
-      }
+
+      newSize = readCartSummary(reader, cart, newSize);
     } catch (IllegalStateException e) {
       throw new IllegalStateException("cart is full");
     } catch (Exception e) {
       // NO other exception should be thrown by this method
     } finally {
-      if (scnr != null) {
-        scnr.close();
+      try {
+        if (reader != null) {
+          reader.close();
+        }
+      } catch (IOException e) {
+        // nothing was written: closing cannot lose data
       }
     }
 
@@ -596,4 +1663,366 @@ public class ExceptionalShoppingCart {
 
   }
 
+  /**
+   * Loads all the cart summary files of a directory into independent carts. The files are the
+   * regular files of the directory, in the order of their names. See loadCartSummaries(File[],
+   * int, int). If directory is not a readable directory, capacity is less than zero or threads is
+   * less than one, IllegalArgumentException will be thrown.
+   * 
+   * @param directory the directory holding the cart summary files
+   * @param capacity  the length of the cart array created for each file
+   * @param threads   the number of worker threads reading the files
+   * @return the cart loaded from each file, or its error, and the throughput of the load
+   * @throws IllegalArgumentException with descriptive error message if invalid input
+   * @throws InterruptedException     if the calling thread is interrupted while waiting for the
+   *                                  workers
+   */
+  public static CartSummaryLoadResult loadCartSummaries(File directory, int capacity, int threads)
+      throws InterruptedException {
+    File[] files = directory == null ? null : directory.listFiles(File::isFile);
+
+    // throws IllegalArgumentException with descriptive error message if not a directory
+    if (files == null) {
+      throw new IllegalArgumentException("directory should be a readable directory");
+    }
+    Arrays.sort(files);
+    return loadCartSummaries(files, capacity, threads);
+  }
+
+  /**
+   * Loads cart summary files into independent carts, in parallel on a fixed pool of worker
+   * threads. Each file is loaded like loadCartSummary() into a new cart array of the given
+   * capacity. Files of at least MAPPED_SUMMARY_BYTES are memory-mapped and decoded in chunks
+   * straight from the mapping, instead of being read through a stream. A file which cannot be
+   * read, or whose items do not fit in its cart, is reported with an error message and does not
+   * stop the load. If files is null, capacity is less than zero or threads is less than one,
+   * IllegalArgumentException will be thrown.
+   * 
+   * @param files    the cart summary files to load
+   * @param capacity the length of the cart array created for each file
+   * @param threads  the number of worker threads reading the files
+   * @return the cart loaded from each file, or its error, and the throughput of the load
+   * @throws IllegalArgumentException with descriptive error message if invalid input
+   * @throws InterruptedException     if the calling thread is interrupted while waiting for the
+   *                                  workers
+   */
+  public static CartSummaryLoadResult loadCartSummaries(final File[] files, final int capacity,
+      int threads) throws InterruptedException {
+    // throws IllegalArgumentException with descriptive error message if invalid input
+    if (files == null) {
+      throw new IllegalArgumentException("files should not be null");
+    }
+    if (capacity < 0) {
+      throw new IllegalArgumentException("capacity should be more than or equal to zero");
+    }
+    if (threads < 1) {
+      throw new IllegalArgumentException("threads should be more than zero");
+    }
+
+    final CartSummaryLoadResult result = new CartSummaryLoadResult(files);
+    final AtomicInteger next = new AtomicInteger(); // index of the next file to load
+    long start = System.nanoTime();
+
+    // each worker takes the next file until there is none left
+    ExecutorService workers =
+        Executors.newFixedThreadPool(Math.max(1, Math.min(threads, files.length)));
+    for (int t = 0; t < threads && t < files.length; t++) {
+      workers.execute(() -> {
+        int index;
+        while ((index = next.getAndIncrement()) < files.length) {
+          loadCartSummaryFile(files[index], capacity, index, result);
+        }
+      });
+    }
+    workers.shutdown();
+    try {
+      while (!workers.awaitTermination(1, TimeUnit.SECONDS)) {
+        // keep waiting for the workers
+      }
+    } catch (InterruptedException e) {
+      workers.shutdownNow();
+      throw e;
+    }
+
+    result.finished(System.nanoTime() - start);
+    return result;
+  }
+
+  /**
+   * Loads one cart summary file into a new cart and records the outcome in result
+   *
+   * @param file     the cart summary file
+   * @param capacity the length of the cart array
+   * @param index    the index of the file in result
+   * @param result   the result of the bulk load
+   */
+  private static void loadCartSummaryFile(File file, int capacity, int index,
+      CartSummaryLoadResult result) {
+    String[] cart = new String[capacity];
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      long bytes = channel.size();
+      Reader reader;
+      if (bytes >= MAPPED_SUMMARY_BYTES && bytes <= Integer.MAX_VALUE) {
+        // decoded in chunks straight from the mapping into the buffer of readCartSummary()
+        reader = new MappedSummaryReader(channel.map(FileChannel.MapMode.READ_ONLY, 0, bytes));
+      } else {
+        reader = Channels.newReader(channel, StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE), SUMMARY_BUFFER_BYTES);
+      }
+      result.fileLoaded(index, cart, readCartSummary(reader, cart, 0), bytes);
+    } catch (IOException e) {
+      result.fileFailed(index, "IOException occurred: " + e.getMessage());
+    } catch (IllegalStateException e) {
+      result.fileFailed(index, "cart is full");
+    } catch (Exception e) {
+      result.fileFailed(index, e.toString());
+    }
+  }
+
+  /**
+   * Reads a cart summary and adds the units of each of its valid lines to cart. The characters are
+   * read through a fixed-size buffer and split into lines at the same line separators as
+   * Scanner.nextLine(); each line is trimmed and parsed in place, without creating any object per
+   * line.
+   *
+   * @param reader reader of the cart summary
+   * @param cart   an array of strings which contains the names of items in the cart
+   * @param size   the number of items in the cart
+   * @return the size of the cart after adding the units of the summary
+   * @throws IOException           if the summary cannot be read
+   * @throws IllegalStateException with descriptive error message if cart reaches its capacity
+   */
+  static int readCartSummary(Reader reader, String[] cart, int size) throws IOException {
+    return readCartSummary(reader, cart, size, null, null);
+  }
+
+  /**
+   * Reads a cart summary like readCartSummary(Reader, String[], int). If units is not null, the
+   * units of each valid line are counted into units, keyed by the row of their item in snapshot in
+   * the order of first occurrence, instead of being added to cart.
+   *
+   * @param reader   reader of the cart summary
+   * @param cart     an array of strings which contains the names of items in the cart
+   * @param size     the number of items in the cart
+   * @param snapshot catalog snapshot resolving the names of the lines counted into units
+   * @param units    receives the number of units of each row, or null to add the units to cart
+   * @return the size of the cart after adding the units of the summary
+   * @throws IOException           if the summary cannot be read
+   * @throws IllegalStateException with descriptive error message if cart reaches its capacity
+   */
+  private static int readCartSummary(Reader reader, String[] cart, int size,
+      CatalogSnapshot snapshot, LinkedHashMap<Integer, long[]> units) throws IOException {
+    char[] chunk = new char[SUMMARY_BUFFER_BYTES];
+    char[] line = new char[128]; // current line, grown when a longer line is found
+    CharBuffer lineText = CharBuffer.wrap(line);
+    int length = 0; // number of characters of the current line
+    boolean afterCarriageReturn = false; // "\r\n" is one line separator
+    int read;
+    while ((read = reader.read(chunk)) >= 0) {
+      for (int i = 0; i < read; i++) {
+        char c = chunk[i];
+        if (c == '\n' && afterCarriageReturn) {
+          afterCarriageReturn = false;
+          continue;
+        }
+        afterCarriageReturn = c == '\r';
+        if (c == '\n' || c == '\r' || c == '\u2028' || c == '\u2029' || c == '\u0085') {
+          size = loadCartSummaryLine(lineText, length, cart, size, snapshot, units);
+          length = 0;
+        } else {
+          if (length == line.length) {
+            line = Arrays.copyOf(line, line.length * 2);
+            lineText = CharBuffer.wrap(line);
+          }
+          line[length++] = c;
+        }
+      }
+    }
+    if (length > 0) { // last line, without line separator
+      size = loadCartSummaryLine(lineText, length, cart, size, snapshot, units);
+    }
+    return size;
+  }
+
+  /**
+   * Trims and parses one line of a cart summary file, and adds its units to cart, or counts them
+   * into units if units is not null, if it is valid
+   *
+   * @param line     characters holding the line, from index 0
+   * @param length   number of characters of the line
+   * @param cart     an array of strings which contains the names of items in the cart
+   * @param size     the number of items in the cart
+   * @param snapshot catalog snapshot resolving the name of the line if it is counted into units
+   * @param units    receives the number of units of each row, or null to add the units to cart
+   * @return the size of the cart after adding the units of the line, or size if the line is not
+   *         valid
+   * @throws IllegalStateException with descriptive error message if cart reaches its capacity
+   */
+  private static int loadCartSummaryLine(CharSequence line, int length, String[] cart, int size,
+      CatalogSnapshot snapshot, LinkedHashMap<Integer, long[]> units) {
+    // same as String.trim()
+    int from = 0;
+    while (from < length && line.charAt(from) <= ' ') {
+      from++;
+    }
+    while (length > from && line.charAt(length - 1) <= ' ') {
+      length--;
+    }
+
+    if (units != null) {
+      long parsed = parseCartSummaryUnits(line, from, length, snapshot);
+      if (parsed >= 0) {
+        units.computeIfAbsent((int) (parsed >>> 32), row -> new long[1])[0] += (int) parsed;
+      }
+      return size;
+    }
+    int result = tryParseCartSummaryLine(line, from, length, cart, size);
+    if (result == PARSE_CART_FULL) {
+      throw new IllegalStateException("cart is full");
+    }
+    return result == PARSE_WRONG_FORMAT || result == PARSE_NOT_IN_MARKET ? size : result;
+  }
+
+  /**
+   * Save the cart to a binary cart file (see BinaryCartSummary): one line per distinct item, in the
+   * order of their first occurrence in the cart, holding the SKU of the item and its number of
+   * units as varints. The file is a fraction of the size of the text summary and is loaded without
+   * any parsing. If size is less than zero or an item is not found in the market,
+   * IllegalArgumentException will be thrown.
+   * 
+   * @param cart an array of strings which contains the names of items in the cart
+   * @param size the number of items in the cart
+   * @param file the file to save the cart to
+   * @throws IllegalArgumentException with descriptive error message if size is less than zero or
+   *                                  an item is not found in the market
+   * @throws IOException              if the file cannot be written
+   */
+  public static void saveBinaryCartSummary(String[] cart, int size, File file) throws IOException {
+    // throws IllegalArgumentException with descriptive error message if size is less than zero
+    if (size < 0) {
+      throw new IllegalArgumentException("size should be more than or equal to zero");
+    }
+
+    CatalogSnapshot snapshot = catalog;
+    LinkedHashMap<String, int[]> occurrences = countOccurrences(cart, size);
+    int[] skus = new int[occurrences.size()];
+    int[] quantities = new int[occurrences.size()];
+    int lines = 0;
+    for (Map.Entry<String, int[]> line : occurrences.entrySet()) {
+      skus[lines] = snapshot.rowOfName(line.getKey());
+
+      // throws IllegalArgumentException with descriptive error message if item not in the market
+      if (skus[lines] < 0) {
+        throw new IllegalArgumentException("No matched name of item found in market");
+      }
+      quantities[lines++] = line.getValue()[0];
+    }
+    BinaryCartSummary.write(snapshot, skus, quantities, lines, file);
+  }
+
+  /**
+   * Load a binary cart file saved by saveBinaryCartSummary() and add its units to cart. The file
+   * is checked before any unit is added: if it is corrupted or was saved against another catalog,
+   * IOException will be thrown, and if its units do not fit in cart, IllegalStateException will be
+   * thrown, leaving cart unchanged. If size is less than zero, IllegalArgumentException will be
+   * thrown.
+   * 
+   * @param file the binary cart file to load
+   * @param cart an array of strings which contains the names of items in the cart
+   * @param size the number of items in the cart
+   * @return the size of the cart after adding the units of the file
+   * @throws IllegalArgumentException with descriptive error message if size is less than zero
+   * @throws IllegalStateException    with descriptive error message if cart reaches its capacity
+   * @throws IOException              if the file cannot be read, is corrupted or was saved against
+   *                                  another catalog
+   */
+  public static int loadBinaryCartSummary(File file, String[] cart, int size) throws IOException {
+    // throws IllegalArgumentException with descriptive error message if size is less than zero
+    if (size < 0) {
+      throw new IllegalArgumentException("size should be more than or equal to zero");
+    }
+
+    CatalogSnapshot snapshot = catalog;
+    BinaryCartSummary summary = BinaryCartSummary.read(snapshot, file);
+
+    // throws IllegalStateException with descriptive error message if cart reaches its capacity
+    if (summary.units() > cart.length - size) {
+      throw new IllegalStateException("cart is full");
+    }
+    for (int i = 0; i < summary.lines(); i++) {
+      int quantity = summary.getQuantity(i);
+      Arrays.fill(cart, size, size + quantity, snapshot.getName(summary.getSku(i)));
+      size += quantity;
+    }
+    return size;
+  }
+
+  /**
+   * Converts a cart summary file to a binary cart file. The summary is loaded like
+   * loadCartSummary() does, so lines which are not valid are skipped, and the lines of a same item
+   * are merged into one. The units are counted per item as the lines are parsed, so memory only
+   * grows with the number of distinct items. All the lines are resolved and the file is written
+   * against the same catalog snapshot, even if the catalog is replaced meanwhile.
+   * 
+   * @param text   the cart summary file to convert
+   * @param binary the binary cart file to write
+   * @return the number of units of the cart
+   * @throws IOException if a file cannot be read or written, or the cart holds more than
+   *                     Integer.MAX_VALUE units
+   */
+  public static int convertCartSummaryToBinary(File text, File binary) throws IOException {
+    // rows are only meaningful in the snapshot which resolved them: loadBinaryMarketCatalog()
+    // replaces the catalog and its rows
+    CatalogSnapshot snapshot = catalog;
+    LinkedHashMap<Integer, long[]> units = new LinkedHashMap<Integer, long[]>();
+    try (Reader reader = new InputStreamReader(new FileInputStream(text),
+        StandardCharsets.UTF_8)) {
+      readCartSummary(reader, null, 0, snapshot, units);
+    }
+
+    int[] skus = new int[units.size()];
+    int[] quantities = new int[units.size()];
+    int lines = 0;
+    long size = 0;
+    for (Map.Entry<Integer, long[]> line : units.entrySet()) {
+      size += line.getValue()[0];
+      if (size > Integer.MAX_VALUE) {
+        throw new IOException("cart summary file is too large");
+      }
+      skus[lines] = line.getKey();
+      quantities[lines++] = (int) line.getValue()[0];
+    }
+    BinaryCartSummary.write(snapshot, skus, quantities, lines, binary);
+    return (int) size;
+  }
+
+  /**
+   * Converts a binary cart file to a cart summary file, in the format of getCartSummary(). Items
+   * with more than 10 units are written on as many lines as needed for each line to hold at most
+   * 10 units, so that the summary can be loaded back by loadCartSummary(). As with
+   * saveCartSummary(), the lines of items whose name holds a space are written but skipped when
+   * the summary is loaded.
+   * 
+   * @param binary the binary cart file to convert
+   * @param text   the cart summary file to write
+   * @return the number of units of the cart
+   * @throws IOException if a file cannot be read or written, or the binary cart file is corrupted
+   *                     or was saved against another catalog
+   */
+  public static long convertBinaryToCartSummary(File binary, File text) throws IOException {
+    CatalogSnapshot snapshot = catalog;
+    BinaryCartSummary summary = BinaryCartSummary.read(snapshot, binary);
+    try (Writer out = newCartSummaryWriter(text)) {
+      for (int i = 0; i < summary.lines(); i++) {
+        String name = snapshot.getName(summary.getSku(i));
+        for (int left = summary.getQuantity(i); left > 0; left -= 10) {
+          boolean last = i == summary.lines() - 1 && left <= 10;
+          writeCartSummaryLine(name, Math.min(left, 10), last, out);
+        }
+      }
+    }
+    return summary.units();
+  }
+
 }
@@ -0,0 +1,561 @@
+//////////////// FILE HEADER (INCLUDE IN EVERY FILE) //////////////////////////
+//
+// Title: ExceptionalShoppingCartBenchmark.java
+///////////////////////////////////////////////////////////////////////////////
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class contains micro-benchmarks for ExceptionalShoppingCart. Each benchmark prints its
+ * measurements to the standard output. Run it with a warmed-up JVM and no other load on the
+ * machine; the numbers are only meaningful relative to each other.
+ *
+ * @author Marin Suzuki
+ */
+public class ExceptionalShoppingCartBenchmark {
+
+  // duration of each timed run, in milliseconds
+  private static final long RUN_MILLIS = 1000;
+
+  /**
+   * Main method
+   *
+   * @param args input arguments if any
+   */
+  public static void main(String[] args) throws InterruptedException, IOException {
+    benchmarkConcurrentLookups();
+    benchmarkImportMarketCatalog(1000000);
+    benchmarkAddItemToMarketCatalog();
+    benchmarkSearchProductsByPrefix();
+    benchmarkMappedCatalog();
+    benchmarkCheckout();
+    benchmarkCartSessionStore();
+    benchmarkCheckoutAll();
+    benchmarkLoadCartSummaries(20000);
+    benchmarkBinaryCartSummary(2000);
+    benchmarkAsyncCartSummaryWriter(20000, 200);
+  }
+
+  /**
+   * Measures the throughput of lookupProductByName() and getProductPrice() for 1, 2, 4, ... reader
+   * threads up to the number of available processors, while one writer thread keeps adding items
+   * to the market catalog. Since readers never lock, throughput should grow with the number of
+   * reader threads.
+   */
+  public static void benchmarkConcurrentLookups() throws InterruptedException {
+    final String[] names = {"Apple", "Banana", "Milk", "Pizza", "Tomato", "Eggs", "Cookie"};
+    int processors = Runtime.getRuntime().availableProcessors();
+    System.out.println("concurrent lookups, " + processors + " processors");
+
+    for (int threads = 1; threads <= processors; threads *= 2) {
+      final AtomicBoolean running = new AtomicBoolean(true);
+      final AtomicLong operations = new AtomicLong();
+      final CountDownLatch start = new CountDownLatch(1);
+      Thread[] readers = new Thread[threads];
+
+      for (int t = 0; t < threads; t++) {
+        readers[t] = new Thread(() -> {
+          long count = 0;
+          double sink = 0;
+          try {
+            start.await();
+          } catch (InterruptedException e) {
+            return;
+          }
+          while (running.get()) {
+            String name = names[(int) (count % names.length)];
+            sink += ExceptionalShoppingCart.lookupProductByName(name).length();
+            sink += ExceptionalShoppingCart.getProductPrice(name);
+            count++;
+          }
+          operations.addAndGet(sink > 0 ? count : 0);
+        });
+        readers[t].start();
+      }
+
+      Thread writer = new Thread(() -> {
+        int id = 0;
+        while (running.get()) {
+          ExceptionalShoppingCart.addItemToMarketCatalog(String.valueOf(1000 + id % 9000),
+              "Benchmark" + id, "$1.00");
+          id++;
+          try {
+            Thread.sleep(1);
+          } catch (InterruptedException e) {
+            return;
+          }
+        }
+      });
+      writer.start();
+
+      start.countDown();
+      Thread.sleep(RUN_MILLIS);
+      running.set(false);
+      for (Thread reader : readers) {
+        reader.join();
+      }
+      writer.join();
+
+      System.out.println(threads + " reader thread(s): "
+          + (operations.get() * 1000 / RUN_MILLIS) + " lookups/s");
+    }
+  }
+
+  /**
+   * Measures the time needed by importMarketCatalog() to load a generated CSV file of the given
+   * number of rows.
+   *
+   * @param rows number of rows of the generated file
+   */
+  public static void benchmarkImportMarketCatalog(int rows) throws IOException {
+    File file = File.createTempFile("catalog", ".csv");
+    try {
+      try (BufferedWriter writer =
+          Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+        writer.write("id,name,price\n");
+        for (int i = 0; i < rows; i++) {
+          writer.write((1000 + i % 9000) + ",Imported item " + i + ",$" + (i % 100) + "."
+              + (10 + i % 90) + "\n");
+        }
+      }
+
+      long start = System.nanoTime();
+      CatalogImportResult result = ExceptionalShoppingCart.importMarketCatalog(file);
+      long elapsed = System.nanoTime() - start;
+      System.out.println("import of " + rows + " rows (" + result + "): " + elapsed / 1000000
+          + " ms");
+    } finally {
+      file.delete();
+    }
+  }
+
+  /**
+   * Measures the average cost of addItemToMarketCatalog() while the catalog grows to 25000, 50000,
+   * 100000 and 200000 items. The cost per insertion should stay flat: inserting N items takes
+   * linear time.
+   */
+  public static void benchmarkAddItemToMarketCatalog() {
+    int added = 0;
+    for (int target = 25000; target <= 200000; target *= 2) {
+      int count = target - added;
+      long start = System.nanoTime();
+      for (int i = 0; i < count; i++) {
+        ExceptionalShoppingCart.addItemToMarketCatalog(String.valueOf(1000 + added % 9000),
+            "Appended" + added, "$1.00");
+        added++;
+      }
+      long elapsed = System.nanoTime() - start;
+      System.out.println("addItemToMarketCatalog up to " + target + " items: " + elapsed / count
+          + " ns/item");
+    }
+  }
+
+  /**
+   * Measures the average time of searchProductsByPrefix() on the current catalog, for exact,
+   * case-insensitive and fuzzy searches returning the top 10 matches. The search index is built by
+   * a first search, which is timed separately.
+   */
+  public static void benchmarkSearchProductsByPrefix() {
+    int size = ExceptionalShoppingCart.getMarketCatalog().size();
+    long start = System.nanoTime();
+    ExceptionalShoppingCart.searchProductsByPrefix("A", 10);
+    System.out.println("search index of " + size + " items built in "
+        + (System.nanoTime() - start) / 1000000 + " ms");
+
+    String[] prefixes = {"Appended 1", "imported item 42", "Chocolate", "Appended12"};
+    boolean[][] modes = {{false, false}, {true, false}, {true, true}};
+    for (boolean[] mode : modes) {
+      int runs = 1000;
+      int found = 0;
+      start = System.nanoTime();
+      for (int i = 0; i < runs; i++) {
+        found += ExceptionalShoppingCart.searchProductsByPrefix(prefixes[i % prefixes.length], 10,
+            mode[0], mode[1]).length;
+      }
+      long elapsed = System.nanoTime() - start;
+      System.out.println("search (ignoreCase " + mode[0] + ", fuzzy " + mode[1] + "): "
+          + elapsed / runs / 1000 + " us/search, " + found / runs + " matches/search");
+    }
+  }
+
+  /**
+   * Measures the time needed to save the current catalog to a binary catalog file, to open it with
+   * MappedCatalog.open(), to load the market catalog from it, and to look up names in the mapped
+   * file.
+   */
+  public static void benchmarkMappedCatalog() throws IOException {
+    File file = File.createTempFile("catalog", ".bin");
+    try {
+      long start = System.nanoTime();
+      ExceptionalShoppingCart.saveBinaryMarketCatalog(file);
+      System.out.println("binary catalog of " + ExceptionalShoppingCart.getMarketCatalog().size()
+          + " items (" + file.length() / 1024 + " KB) saved in "
+          + (System.nanoTime() - start) / 1000000 + " ms");
+
+      start = System.nanoTime();
+      MappedCatalog mapped = MappedCatalog.open(file);
+      System.out.println("binary catalog opened in " + (System.nanoTime() - start) / 1000
+          + " us");
+
+      start = System.nanoTime();
+      ExceptionalShoppingCart.loadBinaryMarketCatalog(file);
+      System.out.println("market catalog loaded from the binary catalog in "
+          + (System.nanoTime() - start) / 1000000 + " ms");
+
+      int runs = 1000000;
+      long sink = 0;
+      start = System.nanoTime();
+      for (int i = 0; i < runs; i++) {
+        sink += mapped.getProductPriceCents("Imported item " + (i % 1000));
+      }
+      System.out.println("mapped lookups: " + (System.nanoTime() - start) / runs
+          + " ns/lookup (checksum " + sink + ")");
+    } finally {
+      file.delete();
+    }
+  }
+
+  /**
+   * Compares checkout() with the previous algorithm, copied as legacyCheckout(), on carts of 10000
+   * units, and measures MoneyEngine.subtotalCents() on 10000 priced lines.
+   */
+  public static void benchmarkCheckout() {
+    String[] names = {"Apple", "Banana", "Milk", "Pizza", "Tomato", "Eggs", "Cookie", "Cheese"};
+    String[] cart = new String[10000];
+    for (int i = 0; i < cart.length; i++) {
+      cart[i] = names[i % names.length];
+    }
+    int runs = 2000;
+
+    String[][] marketItems = ExceptionalShoppingCart.getCopyOfMarketItems();
+    double legacyTotal = 0;
+    long start = System.nanoTime();
+    for (int run = 0; run < runs; run++) {
+      legacyTotal = legacyCheckout(cart, cart.length, marketItems);
+    }
+    System.out.println("per-unit double checkout of 10000 units: "
+        + (System.nanoTime() - start) / runs / 1000 + " us, total " + legacyTotal);
+
+    long totalCents = 0;
+    start = System.nanoTime();
+    for (int run = 0; run < runs; run++) {
+      totalCents = ExceptionalShoppingCart.checkoutCents(cart, cart.length);
+    }
+    System.out.println("fixed-point checkout of 10000 units: " + (System.nanoTime() - start) / runs
+        / 1000 + " us, total " + MoneyEngine.format(totalCents));
+
+    long[] unitCents = new long[10000];
+    int[] quantities = new int[10000];
+    for (int i = 0; i < unitCents.length; i++) {
+      unitCents[i] = 49 + i % 1000;
+      quantities[i] = 1 + i % 10;
+    }
+    long subtotal = 0;
+    start = System.nanoTime();
+    for (int run = 0; run < runs * 10; run++) {
+      subtotal += MoneyEngine.subtotalCents(unitCents, quantities, unitCents.length);
+    }
+    System.out.println("subtotal of 10000 lines: " + (System.nanoTime() - start) / runs / 10
+        + " ns (checksum " + subtotal + ")");
+  }
+
+  /**
+   * The previous checkout(): a linear scan of the catalog rows for each unit, its price parsed from
+   * the String representation of the row, and the tax added per unit, in double
+   *
+   * @param cart        an array of strings which contains the names of items in the cart
+   * @param size        the number of items in the cart
+   * @param marketItems catalog rows {id, name, price}, possibly followed by null rows
+   * @return the total of the cart in dollars
+   */
+  private static double legacyCheckout(String[] cart, int size, String[][] marketItems) {
+    double total = 0.0;
+    for (int i = 0; i < size; i++) {
+      total += legacyGetProductPrice(cart[i], marketItems) * (1 + MoneyEngine.TAX_RATE);
+    }
+    return total;
+  }
+
+  /**
+   * The previous getProductPrice(): a linear scan of the catalog rows, and the price of the first
+   * matching row parsed from its String representation
+   *
+   * @param name        name of the item to get the price
+   * @param marketItems catalog rows {id, name, price}, possibly followed by null rows
+   * @return the price of the item in dollars
+   * @throws NoSuchElementException if price not found
+   */
+  private static double legacyGetProductPrice(String name, String[][] marketItems) {
+    for (int i = 0; i < marketItems.length; i++) {
+      if (marketItems[i] != null && name.equals(marketItems[i][1])) {
+        return Double.parseDouble(marketItems[i][2].substring(1));
+      }
+    }
+    throw new NoSuchElementException("matched price was not found");
+  }
+
+  /**
+   * Measures the throughput of CartSessionStore for 1, 2, 4, ... threads up to twice the number of
+   * available processors. Each thread works on its own 10000 sessions, adding items to them and,
+   * one pass in ten, checking them out. Sessions are striped, so throughput
+   * should grow with the number of threads up to the number of processors.
+   */
+  public static void benchmarkCartSessionStore() throws InterruptedException {
+    final String[] names = {"Apple", "Banana", "Milk", "Pizza", "Tomato", "Eggs", "Cookie"};
+    int processors = Runtime.getRuntime().availableProcessors();
+    System.out.println("cart session store, " + processors + " processors");
+
+    for (int threads = 1; threads <= processors * 2; threads *= 2) {
+      final CartSessionStore store = new CartSessionStore(threads * 20000, 60000);
+      final AtomicBoolean running = new AtomicBoolean(true);
+      final AtomicLong operations = new AtomicLong();
+      final CountDownLatch start = new CountDownLatch(1);
+      Thread[] workers = new Thread[threads];
+
+      for (int t = 0; t < threads; t++) {
+        final String[] sessions = new String[10000];
+        for (int i = 0; i < sessions.length; i++) {
+          sessions[i] = "session" + t + "-" + i;
+        }
+        workers[t] = new Thread(() -> {
+          long count = 0;
+          long sink = 0;
+          try {
+            start.await();
+          } catch (InterruptedException e) {
+            return;
+          }
+          while (running.get()) {
+            String session = sessions[(int) (count % sessions.length)];
+            if (count / sessions.length % 10 == 9) { // one pass over the sessions in ten
+              sink += store.checkoutCents(session);
+            } else {
+              sink += store.addItem(session, names[(int) (count % names.length)]);
+            }
+            count++;
+          }
+          operations.addAndGet(sink > 0 ? count : 0);
+        });
+        workers[t].start();
+      }
+
+      start.countDown();
+      Thread.sleep(RUN_MILLIS);
+      running.set(false);
+      for (Thread worker : workers) {
+        worker.join();
+      }
+
+      System.out.println(threads + " thread(s): " + (operations.get() * 1000 / RUN_MILLIS)
+          + " operations/s, " + store.size() + " sessions");
+    }
+  }
+
+  /**
+   * Compares checkoutAll() on 200000 carts of 20 items with calling checkoutCents() on each cart in
+   * turn. checkoutAll() runs on the common fork/join pool, so its advantage should grow with the
+   * number of available processors.
+   */
+  public static void benchmarkCheckoutAll() {
+    String[] names = {"Apple", "Banana", "Milk", "Pizza", "Tomato", "Eggs", "Cookie", "Cheese"};
+    String[][] carts = new String[200000][20];
+    int[] sizes = new int[carts.length];
+    for (int i = 0; i < carts.length; i++) {
+      for (int j = 0; j < carts[i].length; j++) {
+        carts[i][j] = names[(i + j) % names.length];
+      }
+      sizes[i] = 1 + i % carts[i].length;
+    }
+    System.out.println("checkout of " + carts.length + " carts, "
+        + Runtime.getRuntime().availableProcessors() + " processors");
+
+    for (int run = 0; run < 3; run++) {
+      long sequential = 0;
+      long start = System.nanoTime();
+      for (int i = 0; i < carts.length; i++) {
+        sequential += ExceptionalShoppingCart.checkoutCents(carts[i], sizes[i]);
+      }
+      long sequentialNanos = System.nanoTime() - start;
+
+      start = System.nanoTime();
+      BatchCheckoutResult result = ExceptionalShoppingCart.checkoutAll(carts, sizes);
+      long parallelNanos = System.nanoTime() - start;
+
+      System.out.println("one cart at a time: " + sequentialNanos / 1000000 + " ms (total "
+          + MoneyEngine.format(sequential) + "), checkoutAll: " + parallelNanos / 1000000
+          + " ms (" + result + ")");
+    }
+  }
+
+  /**
+   * Compares loading the given number of generated cart summary files one loadCartSummary() call
+   * at a time with loadCartSummaries() on 1, 2, 4, ... worker threads up to 4 times the number of
+   * available processors. Reading files waits on the disk, so more workers than processors can
+   * still help.
+   *
+   * @param count number of cart summary files to generate
+   */
+  public static void benchmarkLoadCartSummaries(int count)
+      throws IOException, InterruptedException {
+    String[] names = {"Apple", "Banana", "Milk", "Pizza", "Tomato", "Eggs", "Cookie", "Cheese"};
+    File directory = Files.createTempDirectory("summaries").toFile();
+    try {
+      File[] files = new File[count];
+      String[] cart = new String[40];
+      for (int i = 0; i < count; i++) {
+        for (int j = 0; j < cart.length; j++) {
+          cart[j] = names[(i + j * j) % names.length];
+        }
+        files[i] = new File(directory, "cart" + i);
+        ExceptionalShoppingCart.saveCartSummary(cart, cart.length, files[i]);
+      }
+
+      long start = System.nanoTime();
+      for (File file : files) {
+        ExceptionalShoppingCart.loadCartSummary(file, new String[cart.length], 0);
+      }
+      System.out.println("load of " + count + " cart summaries one at a time: "
+          + (System.nanoTime() - start) / 1000000 + " ms");
+
+      int processors = Runtime.getRuntime().availableProcessors();
+      for (int threads = 1; threads <= processors * 4; threads *= 2) {
+        CartSummaryLoadResult result =
+            ExceptionalShoppingCart.loadCartSummaries(files, cart.length, threads);
+        System.out.println(threads + " worker(s): " + result);
+      }
+    } finally {
+      for (File file : directory.listFiles()) {
+        file.delete();
+      }
+      directory.delete();
+    }
+  }
+
+  /**
+   * Compares the size of the text and binary cart files of the given number of generated carts, and
+   * the time needed to save and load them in each format. Each cart holds 10 units of each of 100
+   * distinct items of the catalog.
+   *
+   * @param count number of carts to generate
+   */
+  public static void benchmarkBinaryCartSummary(int count) throws IOException {
+    CatalogSnapshot catalog = ExceptionalShoppingCart.getMarketCatalog();
+    File directory = Files.createTempDirectory("carts").toFile();
+    try {
+      String[][] carts = new String[count][1000];
+      for (int i = 0; i < count; i++) {
+        for (int j = 0; j < carts[i].length; j++) {
+          carts[i][j] = catalog.getName((i + j / 10 * 7) % catalog.size());
+        }
+      }
+      File[] textFiles = new File[count];
+      File[] binaryFiles = new File[count];
+      for (int i = 0; i < count; i++) {
+        textFiles[i] = new File(directory, "cart" + i + ".txt");
+        binaryFiles[i] = new File(directory, "cart" + i + ".bin");
+      }
+
+      long textBytes = 0;
+      long start = System.nanoTime();
+      for (int i = 0; i < count; i++) {
+        ExceptionalShoppingCart.saveCartSummary(carts[i], carts[i].length, textFiles[i]);
+        textBytes += textFiles[i].length();
+      }
+      long textSave = System.nanoTime() - start;
+      long binaryBytes = 0;
+      start = System.nanoTime();
+      for (int i = 0; i < count; i++) {
+        ExceptionalShoppingCart.saveBinaryCartSummary(carts[i], carts[i].length, binaryFiles[i]);
+        binaryBytes += binaryFiles[i].length();
+      }
+      long binarySave = System.nanoTime() - start;
+
+      long sink = 0;
+      start = System.nanoTime();
+      for (File file : textFiles) {
+        sink += ExceptionalShoppingCart.loadCartSummary(file, new String[1000], 0);
+      }
+      long textLoad = System.nanoTime() - start;
+      start = System.nanoTime();
+      for (File file : binaryFiles) {
+        sink += ExceptionalShoppingCart.loadBinaryCartSummary(file, new String[1000], 0);
+      }
+      long binaryLoad = System.nanoTime() - start;
+
+      System.out.println(count + " text carts: " + textBytes + " bytes, saved in "
+          + textSave / 1000000 + " ms, loaded in " + textLoad / 1000000 + " ms");
+      System.out.println(count + " binary carts: " + binaryBytes + " bytes, saved in "
+          + binarySave / 1000000 + " ms, loaded in " + binaryLoad / 1000000 + " ms (checksum "
+          + sink + ")");
+    } finally {
+      for (File file : directory.listFiles()) {
+        file.delete();
+      }
+      directory.delete();
+    }
+  }
+
+  /**
+   * Compares the time the callers spend persisting carts after each of the given number of cart
+   * updates, spread over the given number of carts, when each update is saved with
+   * saveCartSummary() and when it is queued on an AsyncCartSummaryWriter, which coalesces the
+   * saves of a same cart and writes them in group commits.
+   *
+   * @param updates number of cart updates
+   * @param count   number of carts
+   */
+  public static void benchmarkAsyncCartSummaryWriter(int updates, int count)
+      throws IOException, InterruptedException {
+    String[] names = {"Apple", "Banana", "Milk", "Pizza", "Tomato", "Eggs", "Cookie", "Cheese"};
+    File directory = Files.createTempDirectory("async").toFile();
+    try {
+      File[] files = new File[count];
+      String[][] carts = new String[count][updates / count + 1];
+      int[] sizes = new int[count];
+      for (int i = 0; i < count; i++) {
+        files[i] = new File(directory, "cart" + i);
+      }
+
+      long start = System.nanoTime();
+      for (int i = 0; i < updates; i++) {
+        int c = i % count;
+        sizes[c] = ExceptionalShoppingCart.addItemToCart(names[i % names.length], carts[c],
+            sizes[c]);
+        ExceptionalShoppingCart.saveCartSummary(carts[c], sizes[c], files[c]);
+      }
+      System.out.println(updates + " synchronous saves: "
+          + (System.nanoTime() - start) / updates / 1000 + " us/update");
+
+      for (int i = 0; i < count; i++) {
+        sizes[i] = ExceptionalShoppingCart.emptyCart(carts[i], sizes[i]);
+      }
+      AsyncCartSummaryWriter writer = new AsyncCartSummaryWriter(5, 256);
+      start = System.nanoTime();
+      for (int i = 0; i < updates; i++) {
+        int c = i % count;
+        sizes[c] = ExceptionalShoppingCart.addItemToCart(names[i % names.length], carts[c],
+            sizes[c]);
+        writer.save(carts[c], sizes[c], files[c]);
+      }
+      long queued = System.nanoTime() - start;
+      writer.flush();
+      System.out.println(updates + " asynchronous saves: " + queued / updates / 1000
+          + " us/update, flushed after " + (System.nanoTime() - start) / 1000000 + " ms");
+      writer.close();
+      System.out.println(writer);
+    } finally {
+      for (File file : directory.listFiles()) {
+        file.delete();
+      }
+      directory.delete();
+    }
+  }
+}
@@ -8,6 +8,9 @@ import java.io.FileNotFoundException;
 import java.io.FileWriter;
 import java.io.PrintWriter;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.NoSuchElementException;
 import java.util.zip.DataFormatException;
 import java.util.Scanner;
@@ -32,6 +35,24 @@ public class ExceptionalShoppingCartTester {
     System.out.println(testSaveCartSummary());
     System.out.println(testParseCartSummaryLine());
     System.out.println(testLoadCartSummary());
+    System.out.println(testCatalogIndexes());
+    System.out.println(testGetProductPrice());
+    System.out.println(testConcurrentCatalogAccess());
+    System.out.println(testImportMarketCatalog());
+    System.out.println(testGetMarketCatalog());
+    System.out.println(testSearchProductsByPrefix());
+    System.out.println(testMappedCatalog());
+    System.out.println(testUpdateProductPrices());
+    System.out.println(testGetCartSummary());
+    System.out.println(testCheckoutCents());
+    System.out.println(testSkuCart());
+    System.out.println(testExceptionFreeLookups());
+    System.out.println(testBatchItems());
+    System.out.println(testCheckoutAll());
+    System.out.println(testStreamedCartSummary());
+    System.out.println(testLoadCartSummaryLines());
+    System.out.println(testLoadCartSummaries());
+    System.out.println(testBinaryCartSummary());
     System.out.println(runAllTests());
   }
 
@@ -598,6 +619,1057 @@ public class ExceptionalShoppingCartTester {
     return true; // no bug detected
   }
 
+  /**
+   * This method tests that lookupProductByName(), lookupProductById() and parseCartSummaryLine()
+   * find items added through addItemToMarketCatalog(), including after the catalog has been
+   * expanded.
+   *
+   * @return true if all tests pass, and false if any of your tests fails.
+   *
+   */
+  public static boolean testCatalogIndexes() {
+    try {
+      // existing item
+      if (!ExceptionalShoppingCart.lookupProductByName("Milk").equals("3117 Milk $2.09")) {
+        return false; // incorrect
+      }
+      if (!ExceptionalShoppingCart.lookupProductById(3117).equals("3117 Milk $2.09")) {
+        return false; // incorrect
+      }
+
+      // enough new items to force the catalog to expand, each one parsed right after being added
+      String[] cart = new String[2];
+      for (int i = 0; i < 40; i++) {
+        ExceptionalShoppingCart.addItemToMarketCatalog(String.valueOf(8000 + i), "Indexed" + i,
+            "$1.25");
+        if (ExceptionalShoppingCart.parseCartSummaryLine("( 2 ) Indexed" + i, cart, 0) != 2
+            || !cart[1].equals("Indexed" + i)) {
+          return false; // incorrect
+        }
+      }
+      for (int i = 0; i < 40; i++) {
+        String expected = (8000 + i) + " Indexed" + i + " $1.25";
+        if (!ExceptionalShoppingCart.lookupProductByName("Indexed" + i).equals(expected)
+            || !ExceptionalShoppingCart.lookupProductById(8000 + i).equals(expected)) {
+          return false; // incorrect
+        }
+      }
+    } catch (Exception e) {
+      System.out.println(e.getMessage());
+      return false; // incorrect
+    }
+
+    return true; // no bug detected
+  }
+
+  /**
+   * This method tests getProductPrice() method and checkout() method
+   *
+   * @return true if all tests pass, and false if any of your tests fails.
+   *
+   */
+  public static boolean testGetProductPrice() {
+    try {
+      // valid input: prices with one and two decimal digits
+      if (ExceptionalShoppingCart.getProductPrice("Cookie") != 9.5
+          || ExceptionalShoppingCart.getProductPrice("Apple") != 1.59) {
+        return false; // incorrect
+      }
+
+      // valid input: item added to the market catalog
+      ExceptionalShoppingCart.addItemToMarketCatalog("7001", "Priced", "$12.34");
+      if (ExceptionalShoppingCart.getProductPrice("Priced") != 12.34) {
+        return false; // incorrect
+      }
+
+      // valid input: checkout of a cart
+      String[] cart = {"Apple", "Cookie", "Apple", null};
+      double expected = (1.59 + 9.5 + 1.59) * 1.05;
+      if (Math.abs(ExceptionalShoppingCart.checkout(cart, 3) - expected) > 0.005) {
+        return false; // incorrect
+      }
+    } catch (Exception e) {
+      System.out.println(e.getMessage());
+      return false; // incorrect
+    }
+
+    try {
+      ExceptionalShoppingCart.getProductPrice("not existing name"); // invalid input: no match
+      return false; // incorrect
+    } catch (NoSuchElementException e) {
+      System.out.println(e.getMessage()); // correct
+    } catch (Exception e) {
+      return false; // incorrect
+    }
+
+    return true; // no bug detected
+  }
+
+  /**
+   * This method tests that lookups running on other threads always see a consistent catalog while
+   * items are being added with addItemToMarketCatalog().
+   *
+   * @return true if all tests pass, and false if any of your tests fails.
+   *
+   */
+  public static boolean testConcurrentCatalogAccess() {
+    final boolean[] failed = {false};
+    Thread[] readers = new Thread[4];
+
+    for (int t = 0; t < readers.length; t++) {
+      readers[t] = new Thread(() -> {
+        for (int i = 0; i < 2000; i++) {
+          try {
+            if (!ExceptionalShoppingCart.lookupProductByName("Banana").equals("4011 Banana $0.49")
+                || ExceptionalShoppingCart.getProductPrice("Banana") != 0.49) {
+              failed[0] = true; // incorrect
+            }
+            // an item which may or may not have been added yet
+            String item = ExceptionalShoppingCart.lookupProductByName("Concurrent" + (i % 200));
+            if (!item.endsWith(" Concurrent" + (i % 200) + " $2.50")) {
+              failed[0] = true; // incorrect
+            }
+          } catch (NoSuchElementException e) {
+            // correct: item not added yet
+          } catch (Exception e) {
+            failed[0] = true; // incorrect
+          }
+        }
+      });
+      readers[t].start();
+    }
+
+    try {
+      for (int i = 0; i < 200; i++) {
+        ExceptionalShoppingCart.addItemToMarketCatalog(String.valueOf(6000 + i), "Concurrent" + i,
+            "$2.50");
+      }
+      for (Thread reader : readers) {
+        reader.join();
+      }
+    } catch (Exception e) {
+      return false; // incorrect
+    }
+
+    return !failed[0];
+  }
+
+  /**
+   * This method tests importMarketCatalog() method
+   *
+   * @return true if all tests pass, and false if any of your tests fails.
+   *
+   */
+  public static boolean testImportMarketCatalog() {
+    File csvFile = new File("testCatalog.csv");
+    File tsvFile = new File("testCatalog.tsv");
+
+    try {
+      FileWriter fileWriter = new FileWriter(csvFile);
+      fileWriter.write("id,name,price\n"); // header
+      fileWriter.write("5101,Imported Kale,$2.49\n"); // valid
+      fileWriter.write("51,Short Id,$1.00\n"); // invalid: id is not 4 digit
+      fileWriter.write("\n"); // blank line
+      fileWriter.write("5102,,$1.00\n"); // invalid: empty name
+      fileWriter.write("5103,Imported Leek,$-1\n"); // invalid: negative price
+      fileWriter.write("5104,Imported Lime\n"); // invalid: missing price
+      fileWriter.write("5105,Imported Plum,$0.35\n"); // valid
+      fileWriter.close();
+
+      CatalogImportResult result = ExceptionalShoppingCart.importMarketCatalog(csvFile);
+      if (result.getImported() != 2 || result.getRejected() != 4
+          || !result.getErrors().get(0).startsWith("line 3: ")) {
+        return false; // incorrect
+      }
+      if (!ExceptionalShoppingCart.lookupProductByName("Imported Kale")
+          .equals("5101 Imported Kale $2.49")
+          || ExceptionalShoppingCart.getProductPrice("Imported Plum") != 0.35) {
+        return false; // incorrect
+      }
+
+      fileWriter = new FileWriter(tsvFile);
+      fileWriter.write("5106\tImported, Fig\t$3.10\n"); // valid: comma within a TSV field
+      fileWriter.close();
+
+      result = ExceptionalShoppingCart.importMarketCatalog(tsvFile);
+      if (result.getImported() != 1 || result.getRejected() != 0
+          || !ExceptionalShoppingCart.lookupProductById(5106).equals("5106 Imported, Fig $3.10")) {
+        return false; // incorrect
+      }
+    } catch (Exception e) {
+      System.out.println(e.getMessage());
+      return false; // incorrect
+    } finally {
+      csvFile.delete();
+      tsvFile.delete();
+    }
+
+    return true; // no bug detected
+  }
+
+  /**
+   * This method tests getMarketCatalog() method and hasMarketCatalogChangedSince() method
+   *
+   * @return true if all tests pass, and false if any of your tests fails.
+   *
+   */
+  public static boolean testGetMarketCatalog() {
+    try {
+      CatalogSnapshot view = ExceptionalShoppingCart.getMarketCatalog();
+      long version = view.getVersion();
+      int size = view.size();
+
+      // the view lists the same items as a copy of the market items
+      String[][] copy = ExceptionalShoppingCart.getCopyOfMarketItems();
+      for (int i = 0; i < size; i++) {
+        if (!view.getId(i).equals(copy[i][0]) || !view.getName(i).equals(copy[i][1])
+            || !view.getPrice(i).equals(copy[i][2])) {
+          return false; // incorrect
+        }
+      }
+      if (ExceptionalShoppingCart.hasMarketCatalogChangedSince(version)) {
+        return false; // incorrect
+      }
+
+      // adding an item publishes a new version and leaves the view unchanged
+      ExceptionalShoppingCart.addItemToMarketCatalog("7002", "Viewed", "$0.10");
+      if (!ExceptionalShoppingCart.hasMarketCatalogChangedSince(version) || view.size() != size
+          || view.getVersion() != version) {
+        return false; // incorrect
+      }
+      CatalogSnapshot next = ExceptionalShoppingCart.getMarketCatalog();
+      if (next.size() != size + 1 || !next.getName(size).equals("Viewed")
+          || next.getPriceCents(size) != 10) {
+        return false; // incorrect
+      }
+    } catch (Exception e) {
+      System.out.println(e.getMessage());
+      return false; // incorrect
+    }
+
+    try {
+      CatalogSnapshot view = ExceptionalShoppingCart.getMarketCatalog();
+      view.getName(view.size()); // invalid input: row past the end of the catalog
+      return false; // incorrect
+    } catch (IndexOutOfBoundsException e) {
+      System.out.println(e.getMessage()); // correct
+    } catch (Exception e) {
+      return false; // incorrect
+    }
+
+    return true; // no bug detected
+  }
+
+  /**
+   * This method tests searchProductsByPrefix() method
+   *
+   * @return true if all tests pass, and false if any of your tests fails.
+   *
+   */
+  public static boolean testSearchProductsByPrefix() {
+    try {
+      // exact prefix, sorted by name
+      String[] found = ExceptionalShoppingCart.searchProductsByPrefix("Ch", 3);
+      String[] expected = {"3560 Cheese $3.49", "3294 Chicken $5.09", "4071 Chocolate $3.19"};
+      if (!Arrays.equals(found, expected)) {
+        return false; // incorrect
+      }
+
+      // case-sensitive and case-insensitive
+      if (ExceptionalShoppingCart.searchProductsByPrefix("ban", 5).length != 0) {
+        return false; // incorrect
+      }
+      found = ExceptionalShoppingCart.searchProductsByPrefix("ban", 5, true, false);
+      if (found.length != 1 || !found[0].equals("4011 Banana $0.49")) {
+        return false; // incorrect
+      }
+
+      // fuzzy: substitution, deletion and insertion, after the exact matches
+      found = ExceptionalShoppingCart.searchProductsByPrefix("Chocalate", 5, false, true);
+      if (found.length != 1 || !found[0].equals("4071 Chocolate $3.19")) {
+        return false; // incorrect
+      }
+      found = ExceptionalShoppingCart.searchProductsByPrefix("Tomatto", 5, false, true);
+      if (found.length != 1 || !found[0].equals("4688 Tomato $1.79")) {
+        return false; // incorrect
+      }
+      found = ExceptionalShoppingCart.searchProductsByPrefix("pizz", 5, true, true);
+      if (found.length != 1 || !found[0].equals("3890 Pizza $11.5")) {
+        return false; // incorrect
+      }
+      found = ExceptionalShoppingCart.searchProductsByPrefix("Mlk", 5, false, true);
+      if (found.length != 1 || !found[0].equals("3117 Milk $2.09")) {
+        return false; // incorrect
+      }
+
+      // items added to the catalog are found by the next search
+      ExceptionalShoppingCart.addItemToMarketCatalog("7003", "Zucchini", "$0.99");
+      found = ExceptionalShoppingCart.searchProductsByPrefix("Zucc", 5);
+      if (found.length != 1 || !found[0].equals("7003 Zucchini $0.99")) {
+        return false; // incorrect
+      }
+
+      // the next search merges the items added since into the index, which is kept when only
+      // prices change
+      ExceptionalShoppingCart.addItemToMarketCatalog("7008", "zest", "$0.25");
+      ExceptionalShoppingCart.addItemToMarketCatalog("7009", "Zest", "$0.35");
+      ExceptionalShoppingCart.updateProductPrices(new int[] {7003}, new String[] {"$0.99"});
+      found = ExceptionalShoppingCart.searchProductsByPrefix("z", 5, true, false);
+      expected = new String[] {"7009 Zest $0.35", "7008 zest $0.25", "7003 Zucchini $0.99"};
+      if (!Arrays.equals(found, expected)) {
+        return false; // incorrect
+      }
+    } catch (Exception e) {
+      System.out.println(e.getMessage());
+      return false; // incorrect
+    }
+
+    try {
+      ExceptionalShoppingCart.searchProductsByPrefix("A", 0); // invalid input: max is zero
+      return false; // incorrect
+    } catch (IllegalArgumentException e) {
+      System.out.println(e.getMessage()); // correct
+    } catch (Exception e) {
+      return false; // incorrect
+    }
+
+    return true; // no bug detected
+  }
+
+  /**
+   * This method tests saveBinaryMarketCatalog(), loadBinaryMarketCatalog() and the lookup methods
+   * of MappedCatalog
+   *
+   * @return true if all tests pass, and false if any of your tests fails.
+   *
+   */
+  public static boolean testMappedCatalog() {
+    File binaryFile = new File("testCatalog.bin");
+
+    try {
+      ExceptionalShoppingCart.saveBinaryMarketCatalog(binaryFile);
+      MappedCatalog mapped = MappedCatalog.open(binaryFile);
+
+      if (mapped.size() != ExceptionalShoppingCart.getMarketCatalog().size()) {
+        return false; // incorrect
+      }
+      if (!mapped.lookupProductByName("Ice Cream").equals("3553 Ice Cream $5.39")
+          || !mapped.lookupProductById(4363).equals("4363 Cookie $9.5")
+          || mapped.getProductPriceCents("Pizza") != 1150) {
+        return false; // incorrect
+      }
+
+      // the in-memory catalog can be started from the file
+      CatalogSnapshot before = ExceptionalShoppingCart.getMarketCatalog();
+      ExceptionalShoppingCart.loadBinaryMarketCatalog(binaryFile);
+      CatalogSnapshot after = ExceptionalShoppingCart.getMarketCatalog();
+      if (after.size() != before.size() || after.getVersion() <= before.getVersion()
+          || !ExceptionalShoppingCart.lookupProductById(4363).equals("4363 Cookie $9.5")
+          || ExceptionalShoppingCart.getProductPrice("Pizza") != 11.5) {
+        return false; // incorrect
+      }
+    } catch (Exception e) {
+      System.out.println(e.getMessage());
+      return false; // incorrect
+    }
+
+    try {
+      MappedCatalog.open(binaryFile).lookupProductByName("not existing name"); // invalid input
+      return false; // incorrect
+    } catch (NoSuchElementException e) {
+      System.out.println(e.getMessage()); // correct
+    } catch (Exception e) {
+      return false; // incorrect
+    }
+
+    try {
+      MappedCatalog.open(binaryFile).lookupProductById(3330); // invalid input: no matched id
+      return false; // incorrect
+    } catch (NoSuchElementException e) {
+      System.out.println(e.getMessage()); // correct
+    } catch (Exception e) {
+      return false; // incorrect
+    }
+
+    // corrupted files are rejected when they are opened: the name table without a free slot
+    // would make lookups of missing names loop forever, and the heap offset is past the file
+    byte[] bytes;
+    try {
+      bytes = Files.readAllBytes(binaryFile.toPath());
+    } catch (IOException e) {
+      System.out.println(e.getMessage());
+      return false; // incorrect
+    }
+    ByteBuffer header = ByteBuffer.wrap(bytes);
+    int records = 16 + 9000 * 4; // after the header and the id table
+    int nameTable = records + header.getInt(8) * 16;
+    byte[][] corrupted = new byte[3][];
+    corrupted[0] = bytes.clone(); // number of name table slots not a power of two
+    corrupted[0][15] = 3;
+    corrupted[1] = bytes.clone(); // no free slot in the name table
+    for (int slot = 0; slot < header.getInt(12); slot++) {
+      ByteBuffer.wrap(corrupted[1]).putInt(nameTable + slot * 4, 1);
+    }
+    corrupted[2] = bytes.clone(); // heap offset of the first record past the end of the file
+    ByteBuffer.wrap(corrupted[2]).putInt(records + 12, Integer.MAX_VALUE - 8);
+    try {
+      for (byte[] file : corrupted) {
+        try {
+          Files.write(binaryFile.toPath(), file);
+          MappedCatalog.open(binaryFile); // invalid input: corrupted file
+          return false; // incorrect
+        } catch (IOException e) {
+          System.out.println(e.getMessage()); // correct
+        }
+      }
+    } catch (Exception e) {
+      return false; // incorrect
+    } finally {
+      binaryFile.delete();
+    }
+
+    return true; // no bug detected
+  }
+
+  /**
+   * This method tests updateProductPrices() method
+   *
+   * @return true if all tests pass, and false if any of your tests fails.
+   *
+   */
+  public static boolean testUpdateProductPrices() {
+    try {
+      ExceptionalShoppingCart.addItemToMarketCatalog("7004", "Repriced A", "$1.00");
+      ExceptionalShoppingCart.addItemToMarketCatalog("7005", "Repriced B", "$2.00");
+      CatalogSnapshot before = ExceptionalShoppingCart.getMarketCatalog();
+
+      // valid input: both prices change in one new epoch
+      ExceptionalShoppingCart.updateProductPrices(new int[] {7004, 7005},
+          new String[] {"$1.50", "$2.25"});
+      CatalogSnapshot after = ExceptionalShoppingCart.getMarketCatalog();
+      if (after.getPriceEpoch() != before.getPriceEpoch() + 1
+          || ExceptionalShoppingCart.getProductPrice("Repriced A") != 1.5
+          || !ExceptionalShoppingCart.lookupProductById(7005).equals("7005 Repriced B $2.25")) {
+        return false; // incorrect
+      }
+
+      // the previous snapshot keeps the previous prices
+      int row = before.size() - 1;
+      if (!before.getPrice(row).equals("$2.00") || before.getPriceCents(row) != 200) {
+        return false; // incorrect
+      }
+    } catch (Exception e) {
+      System.out.println(e.getMessage());
+      return false; // incorrect
+    }
+
+    try {
+      // invalid input: second price is not parsable, so no price changes
+      ExceptionalShoppingCart.updateProductPrices(new int[] {7004, 7005},
+          new String[] {"$9.00", "$x"});
+      return false; // incorrect
+    } catch (IllegalArgumentException e) {
+      System.out.println(e.getMessage()); // correct
+      if (ExceptionalShoppingCart.getProductPrice("Repriced A") != 1.5) {
+        return false; // incorrect
+      }
+    } catch (Exception e) {
+      return false; // incorrect
+    }
+
+    try {
+      // invalid input: no item has this id
+      ExceptionalShoppingCart.updateProductPrices(new int[] {3330}, new String[] {"$1.00"});
+      return false; // incorrect
+    } catch (IllegalArgumentException e) {
+      System.out.println(e.getMessage()); // correct
+    } catch (Exception e) {
+      return false; // incorrect
+    }
+
+    return true; // no bug detected
+  }
+
+  /**
+   * This method tests getCartSummary() method
+   *
+   * @return true if all tests pass, and false if any of your tests fails.
+   *
+   */
+  public static boolean testGetCartSummary() {
+    try {
+      // valid input: items in the order of their first occurrence
+      String[] cart = {"Milk", "Eggs", "Milk", "Banana", "Milk", "Eggs", null};
+      String expected = "( 3 ) Milk\n( 2 ) Eggs\n( 1 ) Banana";
+      if (!ExceptionalShoppingCart.getCartSummary(cart, 6).equals(expected)) {
+        return false; // incorrect
+      }
+
+      // valid input: empty cart
+      if (!ExceptionalShoppingCart.getCartSummary(cart, 0).equals("")) {
+        return false; // incorrect
+      }
+
+      // valid input: large cart with more than 10 occurrences of an item
+      String[] largeCart = new String[5000];
+      for (int i = 0; i < largeCart.length; i++) {
+        largeCart[i] = i % 2 == 0 ? "Apple" : "Item " + i % 7;
+      }
+      String summary = ExceptionalShoppingCart.getCartSummary(largeCart, largeCart.length);
+      if (!summary.startsWith("( 2500 ) Apple\n( 358 ) Item 1\n") || summary.endsWith("\n")) {
+        return false; // incorrect
+      }
+    } catch (Exception e) {
+      System.out.println(e.getMessage());
+      return false; // incorrect
+    }
+
+    try {
+      ExceptionalShoppingCart.getCartSummary(new String[] {"Milk"}, -1); // invalid input
+      return false; // incorrect
+    } catch (IllegalArgumentException e) {
+      System.out.println(e.getMessage()); // correct
+    } catch (Exception e) {
+      return false; // incorrect
+    }
+
+    return true; // no bug detected
+  }
+
+  /**
+   * This method tests checkoutCents() method
+   *
+   * @return true if all tests pass, and false if any of your tests fails.
+   *
+   */
+  public static boolean testCheckoutCents() {
+    try {
+      // valid input: 3 x $1.59 + $11.5 = $16.27, tax $0.8135 rounded once to $0.81
+      String[] cart = {"Apple", "Pizza", "Apple", "Apple", null};
+      if (ExceptionalShoppingCart.checkoutCents(cart, 4) != 1708
+          || ExceptionalShoppingCart.checkout(cart, 4) != 17.08) {
+        return false; // incorrect
+      }
+
+      // valid input: no rounding drift on a large cart of $0.49 units
+      String[] largeCart = new String[10000];
+      Arrays.fill(largeCart, "Banana");
+      if (ExceptionalShoppingCart.checkoutCents(largeCart, largeCart.length) != 514500) {
+        return false; // incorrect
+      }
+
+      // valid input: empty cart
+      if (ExceptionalShoppingCart.checkoutCents(cart, 0) != 0) {
+        return false; // incorrect
+      }
+    } catch (Exception e) {
+      System.out.println(e.getMessage());
+      return false; // incorrect
+    }
+
+    try {
+      // invalid input: item not found in the market
+      ExceptionalShoppingCart.checkoutCents(new String[] {"Apple", "not existing name"}, 2);
+      return false; // incorrect
+    } catch (NoSuchElementException e) {
+      System.out.println(e.getMessage()); // correct
+    } catch (Exception e) {
+      return false; // incorrect
+    }
+
+    return true; // no bug detected
+  }
+
+  /**
+   * This method tests toSkuCart(), toNameCart() and the int[] cart methods
+   *
+   * @return true if all tests pass, and false if any of your tests fails.
+   *
+   */
+  public static boolean testSkuCart() {
+    try {
+      String[] cart = {"Milk", "Eggs", "Milk", null};
+      int[] skus = new int[4];
+      int size = ExceptionalShoppingCart.toSkuCart(cart, 3, skus);
+      int milk = ExceptionalShoppingCart.getProductSku("Milk");
+      int pizza = ExceptionalShoppingCart.getProductSku("Pizza");
+      if (size != 3 || !ExceptionalShoppingCart.getProductName(milk).equals("Milk")) {
+        return false; // incorrect
+      }
+
+      size = ExceptionalShoppingCart.addItemToCart(pizza, skus, size);
+      if (size != 4 || ExceptionalShoppingCart.nbOccurrences(milk, skus, size) != 2
+          || !ExceptionalShoppingCart.contains(pizza, skus, size)) {
+        return false; // incorrect
+      }
+      // 2 x $2.09 + $3.09 + $11.5 = $18.77, tax $0.9385
+      if (ExceptionalShoppingCart.checkoutCents(skus, size) != 1971) {
+        return false; // incorrect
+      }
+
+      size = ExceptionalShoppingCart.removeItem(skus, milk, size);
+      String[] names = new String[4];
+      String[] expected = {"Pizza", "Eggs", "Milk", null};
+      if (ExceptionalShoppingCart.toNameCart(skus, size, names) != 3
+          || !Arrays.equals(names, expected)) {
+        return false; // incorrect
+      }
+    } catch (Exception e) {
+      System.out.println(e.getMessage());
+      return false; // incorrect
+    }
+
+    try {
+      // invalid input: item not found in the market
+      ExceptionalShoppingCart.toSkuCart(new String[] {"not existing name"}, 1, new int[1]);
+      return false; // incorrect
+    } catch (NoSuchElementException e) {
+      System.out.println(e.getMessage()); // correct
+    } catch (Exception e) {
+      return false; // incorrect
+    }
+
+    try {
+      // invalid input: SKU not found in the market
+      ExceptionalShoppingCart.checkoutCents(new int[] {1, 1000000}, 2);
+      return false; // incorrect
+    } catch (NoSuchElementException e) {
+      System.out.println(e.getMessage()); // correct
+    } catch (Exception e) {
+      return false; // incorrect
+    }
+
+    try {
+      // invalid input: SKU not found in the market
+      ExceptionalShoppingCart.toNameCart(new int[] {-1}, 1, new String[1]);
+      return false; // incorrect
+    } catch (NoSuchElementException e) {
+      System.out.println(e.getMessage()); // correct
+    } catch (Exception e) {
+      return false; // incorrect
+    }
+
+    try {
+      // invalid input: item not found in the cart
+      ExceptionalShoppingCart.removeItem(new int[] {1, 2}, 3, 2);
+      return false; // incorrect
+    } catch (NoSuchElementException e) {
+      System.out.println(e.getMessage()); // correct
+    } catch (Exception e) {
+      return false; // incorrect
+    }
+
+    return true; // no bug detected
+  }
+
+  /**
+   * This method tests findProductSku(), findProductSkuById(), indexOfItem(), tryRemoveItem() and
+   * tryParseCartSummaryLine()
+   *
+   * @return true if all tests pass, and false if any of your tests fails.
+   *
+   */
+  public static boolean testExceptionFreeLookups() {
+    try {
+      int milk = ExceptionalShoppingCart.findProductSku("Milk");
+      if (milk != ExceptionalShoppingCart.getProductSku("Milk")
+          || ExceptionalShoppingCart.findProductSkuById(3117) != milk
+          || ExceptionalShoppingCart.findProductSku("not existing name") != -1
+          || ExceptionalShoppingCart.findProductSku(null) != -1
+          || ExceptionalShoppingCart.findProductSkuById(12) != -1) {
+        return false; // incorrect
+      }
+
+      String[] cart = {"Milk", "Eggs", null};
+      if (ExceptionalShoppingCart.indexOfItem("Eggs", cart, 2) != 1
+          || ExceptionalShoppingCart.tryRemoveItem(cart, "Pizza", 2) != -1
+          || ExceptionalShoppingCart.tryRemoveItem(cart, "Milk", 2) != 1
+          || !cart[0].equals("Eggs")) {
+        return false; // incorrect
+      }
+      int[] skus = {milk, milk};
+      if (ExceptionalShoppingCart.tryRemoveItem(skus, milk + 1, 2) != -1
+          || ExceptionalShoppingCart.tryRemoveItem(skus, milk, 2) != 1) {
+        return false; // incorrect
+      }
+
+      // same acceptance rules as parseCartSummaryLine()
+      cart = new String[4];
+      if (ExceptionalShoppingCart.tryParseCartSummaryLine("( +02 ) Milk", cart, 0) != 2
+          || ExceptionalShoppingCart.tryParseCartSummaryLine("( 2 ) Milk  ", cart, 2) != 4
+          || ExceptionalShoppingCart.tryParseCartSummaryLine(null, cart, 4) != 4) {
+        return false; // incorrect
+      }
+      if (ExceptionalShoppingCart.tryParseCartSummaryLine("( 11 ) Milk", cart, 0)
+          != ExceptionalShoppingCart.PARSE_WRONG_FORMAT
+          || ExceptionalShoppingCart.tryParseCartSummaryLine("(  1 ) Milk", cart, 0)
+              != ExceptionalShoppingCart.PARSE_WRONG_FORMAT
+          || ExceptionalShoppingCart.tryParseCartSummaryLine("( 1 ) Bread", cart, 0)
+              != ExceptionalShoppingCart.PARSE_NOT_IN_MARKET
+          || ExceptionalShoppingCart.tryParseCartSummaryLine("( 3 ) Eggs", cart, 2)
+              != ExceptionalShoppingCart.PARSE_CART_FULL) {
+        return false; // incorrect
+      }
+    } catch (Exception e) {
+      System.out.println(e.getMessage());
+      return false; // incorrect
+    }
+
+    return true; // no bug detected
+  }
+
+  /**
+   * This method tests addItems(), addAll() and removeItems()
+   *
+   * @return true if all tests pass, and false if any of your tests fails.
+   *
+   */
+  public static boolean testBatchItems() {
+    String[] cart = new String[6];
+    int size = 0;
+
+    try {
+      // valid input
+      size = ExceptionalShoppingCart.addItems("Milk", 3, cart, size);
+      size = ExceptionalShoppingCart.addAll(new String[] {"Eggs", "Milk", "Apple"}, 2, cart, size);
+      String[] expected = {"Milk", "Milk", "Milk", "Eggs", "Milk", null};
+      if (size != 5 || !Arrays.equals(cart, expected)) {
+        return false; // incorrect
+      }
+      size = ExceptionalShoppingCart.removeItems("Milk", 3, cart, size);
+      expected = new String[] {"Eggs", "Milk", null, null, null, null};
+      if (size != 2 || !Arrays.equals(cart, expected)) {
+        return false; // incorrect
+      }
+      int[] skus = new int[4];
+      int milk = ExceptionalShoppingCart.getProductSku("Milk");
+      if (ExceptionalShoppingCart.addItems(milk, 4, skus, 0) != 4
+          || ExceptionalShoppingCart.nbOccurrences(milk, skus, 4) != 4) {
+        return false; // incorrect
+      }
+    } catch (Exception e) {
+      System.out.println(e.getMessage());
+      return false; // incorrect
+    }
+
+    try {
+      ExceptionalShoppingCart.addItems("Milk", 5, cart, size); // invalid input: cart too small
+      return false; // incorrect
+    } catch (IllegalStateException e) {
+      System.out.println(e.getMessage()); // correct
+      if (cart[2] != null) {
+        return false; // incorrect: the batch should not be applied
+      }
+    } catch (Exception e) {
+      return false; // incorrect
+    }
+
+    try {
+      // invalid input: an item is not found in the market
+      ExceptionalShoppingCart.addAll(new String[] {"Eggs", "not existing name"}, 2, cart, size);
+      return false; // incorrect
+    } catch (IllegalArgumentException e) {
+      System.out.println(e.getMessage()); // correct
+      if (cart[2] != null) {
+        return false; // incorrect: the batch should not be applied
+      }
+    } catch (Exception e) {
+      return false; // incorrect
+    }
+
+    try {
+      // invalid input: count is more than the number of items
+      ExceptionalShoppingCart.addAll(new String[] {"Eggs"}, 2, cart, size);
+      return false; // incorrect
+    } catch (IllegalArgumentException e) {
+      System.out.println(e.getMessage()); // correct
+      if (cart[2] != null) {
+        return false; // incorrect: the batch should not be applied
+      }
+    } catch (Exception e) {
+      return false; // incorrect
+    }
+
+    try {
+      ExceptionalShoppingCart.removeItems("Milk", 2, cart, size); // invalid input: only one Milk
+      return false; // incorrect
+    } catch (NoSuchElementException e) {
+      System.out.println(e.getMessage()); // correct
+      if (!cart[1].equals("Milk")) {
+        return false; // incorrect: the batch should not be applied
+      }
+    } catch (Exception e) {
+      return false; // incorrect
+    }
+
+    return true; // no bug detected
+  }
+
+  /**
+   * This method tests checkoutAll()
+   *
+   * @return true if all tests pass, and false if any of your tests fails.
+   *
+   */
+  public static boolean testCheckoutAll() {
+    try {
+      String[][] carts = new String[1000][];
+      int[] sizes = new int[1000];
+      for (int i = 0; i < carts.length; i++) {
+        carts[i] = new String[] {"Pizza", "Apple", "Milk"};
+        sizes[i] = i % 4;
+      }
+      carts[7] = new String[] {"Pizza", "not existing name", "Milk"}; // rejected
+      sizes[8] = 5; // rejected: size out of the cart
+
+      BatchCheckoutResult result = ExceptionalShoppingCart.checkoutAll(carts, sizes);
+      long aggregate = 0;
+      for (int i = 0; i < carts.length; i++) {
+        if (i != 7 && i != 8) {
+          long total = ExceptionalShoppingCart.checkoutCents(carts[i], sizes[i]);
+          if (result.getTotalCents(i) != total) {
+            return false; // incorrect
+          }
+          aggregate += total;
+        }
+      }
+      if (result.getTotalCents(7) != -1 || result.getTotalCents(8) != -1
+          || result.getPriced() != 998 || result.getRejected() != 2
+          || result.getAggregateTotalCents() != aggregate) {
+        return false; // incorrect
+      }
+    } catch (Exception e) {
+      System.out.println(e.getMessage());
+      return false; // incorrect
+    }
+
+    try {
+      ExceptionalShoppingCart.checkoutAll(new String[2][], new int[1]); // invalid input
+      return false; // incorrect
+    } catch (IllegalArgumentException e) {
+      System.out.println(e.getMessage()); // correct
+    } catch (Exception e) {
+      return false; // incorrect
+    }
+
+    return true; // no bug detected
+  }
+
+  /**
+   * This method tests that saveCartSummary() writes the summary of getCartSummary() in UTF-8, for
+   * a large cart with non-ASCII names
+   *
+   * @return true if all tests pass, and false if any of your tests fails.
+   *
+   */
+  public static boolean testStreamedCartSummary() {
+    File file = new File("testStreamedFile");
+    try {
+      String[] names = {"Cr\u00e8me br\u00fbl\u00e9e", "Milk", "\u6885\u5e72", "Tea  "};
+      String[] cart = new String[100000];
+      for (int i = 0; i < cart.length; i++) {
+        cart[i] = names[i % names.length] + (i % 7 == 0 ? "" : i % 5);
+      }
+      cart[cart.length - 1] = "Tea  "; // the trailing spaces of the last line are dropped
+
+      ExceptionalShoppingCart.saveCartSummary(cart, cart.length, file);
+      String saved = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+      if (!saved.equals(ExceptionalShoppingCart.getCartSummary(cart, cart.length))) {
+        return false; // incorrect
+      }
+    } catch (Exception e) {
+      System.out.println(e.getMessage());
+      return false; // incorrect
+    } finally {
+      file.delete();
+    }
+
+    return true; // no bug detected
+  }
+
+  /**
+   * This method tests that loadCartSummary() splits lines at the same separators as
+   * Scanner.nextLine(), trims them, and keeps the acceptance rules of parseCartSummaryLine()
+   *
+   * @return true if all tests pass, and false if any of your tests fails.
+   *
+   */
+  public static boolean testLoadCartSummaryLines() {
+    File file = new File("testLinesFile");
+    try {
+      String summary = "( 1 ) Milk\r\n\t( 2 ) Eggs  \r( \u0663 ) Apple\u2028( 1 ) Ice Cream\n"
+          + "( +1 ) Pizza\u0085\n( 11 ) Milk\n(  1 ) Milk\n( 1 )  Milk\n( 1 ) Onion";
+      Files.write(file.toPath(), summary.getBytes(StandardCharsets.UTF_8));
+      String[] cart = new String[10];
+      int size = ExceptionalShoppingCart.loadCartSummary(file, cart, 0);
+      String[] expected =
+          {"Milk", "Eggs", "Eggs", "Apple", "Apple", "Apple", "Pizza", "Onion", null, null};
+      if (size != 8 || !Arrays.equals(cart, expected)) {
+        return false; // incorrect
+      }
+    } catch (Exception e) {
+      System.out.println(e.getMessage());
+      return false; // incorrect
+    } finally {
+      file.delete();
+    }
+
+    return true; // no bug detected
+  }
+
+  /**
+   * This method tests loadCartSummaries() on a directory holding small files, a file large enough
+   * to be memory-mapped, a file which does not fit in its cart and a file which is not a summary
+   *
+   * @return true if all tests pass, and false if any of your tests fails.
+   *
+   */
+  public static boolean testLoadCartSummaries() {
+    File directory = new File("testSummaries");
+    directory.mkdir();
+    try {
+      for (int i = 0; i < 30; i++) {
+        ExceptionalShoppingCart.saveCartSummary(new String[] {"Milk", "Eggs", "Milk"}, 1 + i % 3,
+            new File(directory, "cart" + (100 + i)));
+      }
+      StringBuilder large = new StringBuilder("( 2 ) Pizza\n");
+      while (large.length() <= ExceptionalShoppingCart.MAPPED_SUMMARY_BYTES) {
+        large.append("not a line of summary\n");
+      }
+      large.append("( 3 ) Apple");
+      Files.write(new File(directory, "cart200").toPath(),
+          large.toString().getBytes(StandardCharsets.UTF_8));
+      Files.write(new File(directory, "cart201").toPath(),
+          "( 10 ) Milk\n( 10 ) Milk\n( 10 ) Milk".getBytes(StandardCharsets.UTF_8));
+      new File(directory, "cart202").mkdir(); // not a file: not loaded
+
+      CartSummaryLoadResult result = ExceptionalShoppingCart.loadCartSummaries(directory, 20, 4);
+      if (result.size() != 32 || result.getLoaded() != 31 || result.getFailed() != 1) {
+        return false; // incorrect
+      }
+      for (int i = 0; i < 30; i++) {
+        String[] cart = new String[20];
+        int size = ExceptionalShoppingCart.loadCartSummary(result.getFile(i), cart, 0);
+        if (result.getSize(i) != size || !Arrays.equals(result.getCart(i), cart)) {
+          return false; // incorrect
+        }
+      }
+      String[] expected = new String[20];
+      Arrays.fill(expected, 0, 2, "Pizza");
+      Arrays.fill(expected, 2, 5, "Apple");
+      if (result.getSize(30) != 5 || !Arrays.equals(result.getCart(30), expected)
+          || result.getError(31) == null || result.getCart(31) != null) {
+        return false; // incorrect
+      }
+    } catch (Exception e) {
+      System.out.println(e.getMessage());
+      return false; // incorrect
+    } finally {
+      for (File file : directory.listFiles()) {
+        file.delete();
+      }
+      directory.delete();
+    }
+
+    try {
+      ExceptionalShoppingCart.loadCartSummaries(new File[0], 10, 0); // invalid input
+      return false; // incorrect
+    } catch (IllegalArgumentException e) {
+      System.out.println(e.getMessage()); // correct
+    } catch (Exception e) {
+      return false; // incorrect
+    }
+
+    return true; // no bug detected
+  }
+
+  /**
+   * This method tests saveBinaryCartSummary(), loadBinaryCartSummary() and the conversions between
+   * the text and binary cart formats, including corrupted files
+   *
+   * @return true if all tests pass, and false if any of your tests fails.
+   *
+   */
+  public static boolean testBinaryCartSummary() {
+    File binary = new File("testBinaryCart");
+    File text = new File("testBinaryCartText");
+    try {
+      // valid input: 25 units of Milk do not fit in one line of text summary
+      String[] cart = new String[40];
+      int size = ExceptionalShoppingCart.addItems("Milk", 25, cart, 0);
+      size = ExceptionalShoppingCart.addItems("Eggs", 2, cart, size);
+      size = ExceptionalShoppingCart.addItemToCart("Milk", cart, size);
+      ExceptionalShoppingCart.saveBinaryCartSummary(cart, size, binary);
+      if (binary.length() != 4 + 5 + 4) { // header, lines and checksum
+        return false; // incorrect
+      }
+      String[] loaded = new String[40];
+      loaded[0] = "Apple";
+      if (ExceptionalShoppingCart.loadBinaryCartSummary(binary, loaded, 1) != 29
+          || !loaded[0].equals("Apple") || !loaded[1].equals("Milk") || !loaded[26].equals("Milk")
+          || !loaded[27].equals("Eggs") || loaded[29] != null) {
+        return false; // incorrect
+      }
+
+      // binary to text and back: Milk is split into lines of at most 10 units
+      if (ExceptionalShoppingCart.convertBinaryToCartSummary(binary, text) != 28) {
+        return false; // incorrect
+      }
+      String summary = new String(Files.readAllBytes(text.toPath()), StandardCharsets.UTF_8);
+      if (!summary.equals("( 10 ) Milk\n( 10 ) Milk\n( 6 ) Milk\n( 2 ) Eggs")) {
+        return false; // incorrect
+      }
+      binary.delete();
+      String[] converted = new String[28];
+      if (ExceptionalShoppingCart.convertCartSummaryToBinary(text, binary) != 28
+          || ExceptionalShoppingCart.loadBinaryCartSummary(binary, converted, 0) != 28
+          || !converted[25].equals("Milk") || !converted[26].equals("Eggs")) {
+        return false; // incorrect
+      }
+    } catch (Exception e) {
+      System.out.println(e.getMessage());
+      return false; // incorrect
+    }
+
+    try {
+      // invalid input: the units do not fit in the cart, which is left unchanged
+      String[] cart = new String[28];
+      ExceptionalShoppingCart.loadBinaryCartSummary(binary, cart, 1);
+      return false; // incorrect
+    } catch (IllegalStateException e) {
+      System.out.println(e.getMessage()); // correct
+    } catch (Exception e) {
+      return false; // incorrect
+    }
+
+    try {
+      // invalid input: one byte of the file is changed
+      byte[] bytes = Files.readAllBytes(binary.toPath());
+      bytes[6]++;
+      Files.write(binary.toPath(), bytes);
+      ExceptionalShoppingCart.loadBinaryCartSummary(binary, new String[40], 0);
+      return false; // incorrect
+    } catch (IOException e) {
+      System.out.println(e.getMessage()); // correct
+    } catch (Exception e) {
+      return false; // incorrect
+    }
+
+    try {
+      // invalid input: a text summary is not a binary cart file
+      ExceptionalShoppingCart.loadBinaryCartSummary(text, new String[40], 0);
+      return false; // incorrect
+    } catch (IOException e) {
+      System.out.println(e.getMessage()); // correct
+    } catch (Exception e) {
+      return false; // incorrect
+    } finally {
+      binary.delete();
+      text.delete();
+    }
+
+    return true; // no bug detected
+  }
 
   public static boolean addItemToMarketCatalogTester() {
     String[][] marketItems =
@@ -633,6 +1705,13 @@ public class ExceptionalShoppingCartTester {
    */
   public static boolean runAllTests() {
     return testLookupMethods() && testAddItemToMarketCatalog() && testSaveCartSummary()
-        && testParseCartSummaryLine() && testLoadCartSummary() && addItemToMarketCatalogTester();
+        && testParseCartSummaryLine() && testLoadCartSummary() && testCatalogIndexes()
+        && testGetProductPrice() && testConcurrentCatalogAccess() && testImportMarketCatalog()
+        && testGetMarketCatalog() && testSearchProductsByPrefix()
+        && testMappedCatalog() && testUpdateProductPrices()
+        && testGetCartSummary() && testCheckoutCents()
+        && testSkuCart() && testExceptionFreeLookups() && testBatchItems() && testCheckoutAll()
+        && testStreamedCartSummary() && testLoadCartSummaryLines() && testLoadCartSummaries()
+        && testBinaryCartSummary() && addItemToMarketCatalogTester();
   }
 }
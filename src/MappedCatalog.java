@@ -0,0 +1,384 @@
+//////////////// FILE HEADER (INCLUDE IN EVERY FILE) //////////////////////////
+//
+// Title: MappedCatalog.java
+///////////////////////////////////////////////////////////////////////////////
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.NoSuchElementException;
+
+/**
+ * This class is a market catalog stored in a compact binary file which is memory-mapped and
+ * queried in place: its items stay off the Java heap, and no string is decoded until it is looked
+ * up. The file is made of (all numbers big-endian):
+ *
+ * header: magic "ESCC", format version, number of items, number of name table slots (4 ints)
+ * id table: one int per 4-digits id, the index of the first record with that id plus one
+ * records: one fixed-width record per item: price in cents (long), id (int), offset of the item in
+ * the name heap (int)
+ * name table: open addressing hash table of the names, holding record index plus one (ints)
+ * name heap: for each item, its name then its price as written in the catalog ("$9.5"), each as a
+ * length (unsigned short) followed by UTF-8 bytes
+ *
+ * Records are in catalog order, and only the first record of each id or name is indexed, like the
+ * in-memory catalog, so lookups return the same strings. The whole file is checked when it is
+ * opened, in one pass over its tables and the lengths of its heap strings, so that a corrupted
+ * file is rejected with an IOException instead of making lookups fail or return another item. The
+ * file must not be modified while it is mapped. A mapped catalog is read-only and can be queried
+ * from any thread.
+ *
+ * @author Marin Suzuki
+ */
+public class MappedCatalog {
+
+  private static final int MAGIC = 0x45534343; // "ESCC"
+  private static final int FORMAT_VERSION = 2;
+
+  private static final int HEADER_BYTES = 16;
+  private static final int ID_TABLE_SLOTS = CatalogSnapshot.MAX_ID - CatalogSnapshot.MIN_ID + 1;
+  private static final int RECORD_BYTES = 16;
+
+  private final ByteBuffer buffer; // the mapped file, only read with absolute methods
+  private final int size; // number of records
+  private final int nameSlots; // number of slots of the name table, a power of two
+  private final int recordsOffset;
+  private final int nameTableOffset;
+  private final int heapOffset;
+
+  /**
+   * Creates a catalog reading the given mapped file, after checking its tables and records
+   *
+   * @param buffer the mapped file
+   * @throws IOException if the buffer is not a catalog file of a supported version, or is
+   *                     corrupted
+   */
+  private MappedCatalog(ByteBuffer buffer) throws IOException {
+    if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+      throw new IOException("not a binary catalog file");
+    }
+    if (buffer.getInt(4) != FORMAT_VERSION) {
+      throw new IOException("unsupported binary catalog version " + buffer.getInt(4));
+    }
+    this.buffer = buffer;
+    this.size = buffer.getInt(8);
+    this.nameSlots = buffer.getInt(12);
+
+    // the name table must be a power of two with a free slot, so that every probe ends
+    if (size < 0 || nameSlots <= size || Integer.bitCount(nameSlots) != 1) {
+      throw new IOException("corrupted binary catalog file");
+    }
+    long heap = HEADER_BYTES + ID_TABLE_SLOTS * 4L + (long) size * RECORD_BYTES + nameSlots * 4L;
+    if (heap > buffer.limit()) {
+      throw new IOException("truncated binary catalog file");
+    }
+    this.recordsOffset = HEADER_BYTES + ID_TABLE_SLOTS * 4;
+    this.nameTableOffset = recordsOffset + size * RECORD_BYTES;
+    this.heapOffset = (int) heap;
+    checkRecords();
+    checkTables();
+  }
+
+  /**
+   * Checks that every record has a 4-digits id, a price which is not negative, and a non-empty
+   * name followed by a price string, both within the name heap
+   *
+   * @throws IOException if a record is corrupted
+   */
+  private void checkRecords() throws IOException {
+    for (int i = 0; i < size; i++) {
+      int offset = recordsOffset + i * RECORD_BYTES;
+      int id = buffer.getInt(offset + 8);
+      int heapPosition = buffer.getInt(offset + 12);
+      if (id < CatalogSnapshot.MIN_ID || id > CatalogSnapshot.MAX_ID || buffer.getLong(offset) < 0
+          || heapPosition < 0 || (long) heapOffset + heapPosition + 2 > buffer.limit()) {
+        throw new IOException("corrupted binary catalog file");
+      }
+      int position = heapOffset + heapPosition;
+      long pricePosition = position + 2L + (buffer.getShort(position) & 0xffff);
+      if (pricePosition == position + 2 || pricePosition + 2 > buffer.limit()
+          || pricePosition + 2 + (buffer.getShort((int) pricePosition) & 0xffff) > buffer
+              .limit()) {
+        throw new IOException("corrupted binary catalog file");
+      }
+    }
+  }
+
+  /**
+   * Checks that every entry of the id and name tables is a record index plus one, that the id
+   * table points to records with the right id, and that the name table has a free slot
+   *
+   * @throws IOException if a table is corrupted
+   */
+  private void checkTables() throws IOException {
+    for (int i = 0; i < ID_TABLE_SLOTS; i++) {
+      int entry = buffer.getInt(HEADER_BYTES + i * 4);
+      if (entry < 0 || entry > size || (entry > 0
+          && buffer.getInt(recordsOffset + (entry - 1) * RECORD_BYTES + 8)
+              != CatalogSnapshot.MIN_ID + i)) {
+        throw new IOException("corrupted binary catalog file");
+      }
+    }
+    int freeSlots = 0;
+    for (int slot = 0; slot < nameSlots; slot++) {
+      int entry = buffer.getInt(nameTableOffset + slot * 4);
+      if (entry < 0 || entry > size) {
+        throw new IOException("corrupted binary catalog file");
+      }
+      freeSlots += entry == 0 ? 1 : 0;
+    }
+    if (freeSlots == 0) {
+      throw new IOException("corrupted binary catalog file");
+    }
+  }
+
+  /**
+   * Writes the given catalog snapshot to a binary catalog file, replacing its content
+   *
+   * @param catalog catalog snapshot to write
+   * @param file    file to write
+   * @throws IOException if the file cannot be written
+   */
+  public static void write(CatalogSnapshot catalog, File file) throws IOException {
+    int size = catalog.size();
+    byte[][] names = new byte[size][];
+    byte[][] prices = new byte[size][];
+    long heapBytes = 0;
+    for (int i = 0; i < size; i++) {
+      names[i] = catalog.getName(i).getBytes(StandardCharsets.UTF_8);
+      prices[i] = catalog.getPrice(i).getBytes(StandardCharsets.UTF_8);
+      if (names[i].length > 0xffff || prices[i].length > 0xffff) {
+        throw new IOException("item is too long for a binary catalog file");
+      }
+      heapBytes += 4 + names[i].length + prices[i].length;
+    }
+    int nameSlots = Integer.highestOneBit(Math.max(size, 1)) * 4; // load factor at most 1/2
+
+    int recordsOffset = HEADER_BYTES + ID_TABLE_SLOTS * 4;
+    int nameTableOffset = recordsOffset + size * RECORD_BYTES;
+    long heapOffset = nameTableOffset + (long) nameSlots * 4;
+    if (heapOffset + heapBytes > Integer.MAX_VALUE) {
+      throw new IOException("catalog is too large for a binary catalog file");
+    }
+
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      MappedByteBuffer out =
+          channel.map(FileChannel.MapMode.READ_WRITE, 0, heapOffset + heapBytes);
+      out.putInt(0, MAGIC);
+      out.putInt(4, FORMAT_VERSION);
+      out.putInt(8, size);
+      out.putInt(12, nameSlots);
+
+      int heapPosition = 0;
+      for (int i = 0; i < size; i++) {
+        int id = Integer.parseInt(catalog.getId(i));
+        int record = recordsOffset + i * RECORD_BYTES;
+        out.putLong(record, catalog.getPriceCents(i));
+        out.putInt(record + 8, id);
+        out.putInt(record + 12, heapPosition);
+
+        int idSlot = HEADER_BYTES + (id - CatalogSnapshot.MIN_ID) * 4;
+        if (out.getInt(idSlot) == 0) {
+          out.putInt(idSlot, i + 1);
+        }
+
+        // first record with this name: add it to the name table
+        int slot = hash(names[i], 0, names[i].length) & (nameSlots - 1);
+        while (true) {
+          int entry = out.getInt(nameTableOffset + slot * 4);
+          if (entry == 0) {
+            out.putInt(nameTableOffset + slot * 4, i + 1);
+            break;
+          }
+          if (catalog.getName(entry - 1).equals(catalog.getName(i))) {
+            break;
+          }
+          slot = (slot + 1) & (nameSlots - 1);
+        }
+
+        int position = (int) heapOffset + heapPosition;
+        out.putShort(position, (short) names[i].length);
+        out.put(position + 2, names[i]);
+        position += 2 + names[i].length;
+        out.putShort(position, (short) prices[i].length);
+        out.put(position + 2, prices[i]);
+        heapPosition += 4 + names[i].length + prices[i].length;
+      }
+      out.force();
+    }
+  }
+
+  /**
+   * Memory-maps a binary catalog file written by write() and checks it
+   *
+   * @param file binary catalog file
+   * @return the mapped catalog
+   * @throws IOException if the file cannot be read, is not a binary catalog file or is corrupted
+   */
+  public static MappedCatalog open(File file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      return new MappedCatalog(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+  }
+
+  /**
+   * Returns the FNV-1a hash of the given bytes
+   */
+  private static int hash(byte[] bytes, int from, int to) {
+    int hash = 0x811c9dc5;
+    for (int i = from; i < to; i++) {
+      hash = (hash ^ (bytes[i] & 0xff)) * 0x01000193;
+    }
+    return hash ^ (hash >>> 16);
+  }
+
+  /**
+   * Returns the number of items in this catalog
+   *
+   * @return the number of items in this catalog
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the index of the first record with the given name
+   *
+   * @param name name of the item to find
+   * @return the index of the record, or -1 if no item has this name
+   */
+  private int recordOfName(String name) {
+    if (name == null) {
+      return -1;
+    }
+    byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+    int slot = hash(bytes, 0, bytes.length) & (nameSlots - 1);
+    // the table was checked to have a free slot, the bound only guards against a bad mapping
+    for (int probes = 0; probes < nameSlots; probes++) {
+      int entry = buffer.getInt(nameTableOffset + slot * 4);
+      if (entry == 0) {
+        return -1;
+      }
+      if (nameEquals(entry - 1, bytes)) {
+        return entry - 1;
+      }
+      slot = (slot + 1) & (nameSlots - 1);
+    }
+    return -1;
+  }
+
+  /**
+   * Compares the name of a record to the given UTF-8 bytes, in place
+   */
+  private boolean nameEquals(int record, byte[] bytes) {
+    int position = heapOffset + buffer.getInt(recordsOffset + record * RECORD_BYTES + 12);
+    if ((buffer.getShort(position) & 0xffff) != bytes.length) {
+      return false;
+    }
+    for (int i = 0; i < bytes.length; i++) {
+      if (buffer.get(position + 2 + i) != bytes[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the string of the name heap at the given position: a length (unsigned short) followed
+   * by UTF-8 bytes
+   */
+  private String heapString(int position) {
+    byte[] bytes = new byte[buffer.getShort(position) & 0xffff];
+    buffer.get(position + 2, bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Returns "itemId name itemPrice" for the given record
+   */
+  private String format(int record) {
+    int offset = recordsOffset + record * RECORD_BYTES;
+    int position = heapOffset + buffer.getInt(offset + 12);
+    int pricePosition = position + 2 + (buffer.getShort(position) & 0xffff);
+    return buffer.getInt(offset + 8) + " " + heapString(position) + " "
+        + heapString(pricePosition);
+  }
+
+  /**
+   * Reads all the items of this catalog into a new in-memory catalog snapshot. The records,
+   * checked when the file was opened, are copied as they are: no price is parsed, and the indexes
+   * are built in a single pass. The snapshot holds its items on the Java heap, so its cost grows
+   * with the size of the catalog.
+   *
+   * @param version    version of the new snapshot
+   * @param priceEpoch price epoch of the new snapshot
+   * @return a catalog snapshot holding the items of this catalog
+   */
+  CatalogSnapshot toSnapshot(long version, long priceEpoch) {
+    String[][] items = new String[size][];
+    long[] priceCents = new long[size];
+    for (int i = 0; i < size; i++) {
+      int offset = recordsOffset + i * RECORD_BYTES;
+      int position = heapOffset + buffer.getInt(offset + 12);
+      int pricePosition = position + 2 + (buffer.getShort(position) & 0xffff);
+      items[i] = new String[] {String.valueOf(buffer.getInt(offset + 8)), heapString(position),
+          heapString(pricePosition)};
+      priceCents[i] = buffer.getLong(offset);
+    }
+    return new CatalogSnapshot(items, priceCents, version, priceEpoch);
+  }
+
+  /**
+   * Returns a string representation of the item whose name is provided as input
+   *
+   * @param name name of the item to find
+   * @return "itemId name itemPrice" if an item with the provided name was found
+   * @throws NoSuchElementException with descriptive error message if no match found
+   */
+  public String lookupProductByName(String name) {
+    int record = recordOfName(name);
+    if (record < 0) {
+      throw new NoSuchElementException("No match found");
+    }
+    return format(record);
+  }
+
+  /**
+   * Returns a string representation of the item whose id is provided as input
+   *
+   * @param key id of the item to find
+   * @return "itemId name itemPrice" if an item with the provided id was found
+   * @throws IllegalArgumentException with descriptive error message if key is not a 4-digits int
+   * @throws NoSuchElementException   with descriptive error message if no match found
+   */
+  public String lookupProductById(int key) {
+    if (key > CatalogSnapshot.MAX_ID || key < CatalogSnapshot.MIN_ID) {
+      throw new IllegalArgumentException("id should be 4-digits int");
+    }
+    int entry = buffer.getInt(HEADER_BYTES + (key - CatalogSnapshot.MIN_ID) * 4);
+    if (entry == 0) {
+      throw new NoSuchElementException("No match found");
+    }
+    return format(entry - 1);
+  }
+
+  /**
+   * Returns the price in cents of a market item given its name
+   *
+   * @param name name of the item to get the price
+   * @return the price of the item in cents
+   * @throws NoSuchElementException with descriptive error message if price not found
+   */
+  public long getProductPriceCents(String name) {
+    int record = recordOfName(name);
+    if (record < 0) {
+      throw new NoSuchElementException("matched price was not found");
+    }
+    return buffer.getLong(recordsOffset + record * RECORD_BYTES);
+  }
+}
@@ -0,0 +1,75 @@
+//////////////// FILE HEADER (INCLUDE IN EVERY FILE) //////////////////////////
+//
+// Title: MappedSummaryReader.java
+///////////////////////////////////////////////////////////////////////////////
+
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * This class reads the UTF-8 text of a memory-mapped file. Each read decodes the next bytes of the
+ * mapping straight into the array of the caller, so the text is never copied whole on the Java
+ * heap: reading a file of any size only uses the buffer of the caller. Malformed bytes are
+ * replaced, like the readers of Channels.newReader() used for the other cart summary files.
+ *
+ * The mapping itself is released by the garbage collector once the reader and its buffer are no
+ * longer used, as Java has no public way to unmap a file.
+ *
+ * @author Marin Suzuki
+ */
+class MappedSummaryReader extends Reader {
+
+  private final ByteBuffer bytes; // the bytes left to decode
+  private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+      .onMalformedInput(CodingErrorAction.REPLACE)
+      .onUnmappableCharacter(CodingErrorAction.REPLACE);
+  private boolean flushed; // true once all the bytes are decoded and the decoder flushed
+
+  /**
+   * Creates a reader of the given bytes
+   *
+   * @param bytes the mapped file, from its position to its limit
+   */
+  MappedSummaryReader(ByteBuffer bytes) {
+    this.bytes = bytes;
+  }
+
+  /**
+   * Decodes the next bytes into chars[offset] to chars[offset + length - 1]
+   *
+   * @param chars  the array receiving the characters
+   * @param offset index of the first character to write
+   * @param length maximum number of characters to write
+   * @return the number of characters read, or -1 at the end of the file
+   */
+  @Override
+  public int read(char[] chars, int offset, int length) {
+    if (length == 0) {
+      return 0;
+    }
+    if (flushed) {
+      return -1;
+    }
+    CharBuffer out = CharBuffer.wrap(chars, offset, length);
+    CoderResult result = decoder.decode(bytes, out, true);
+    if (result.isUnderflow()) { // every byte is decoded
+      flushed = decoder.flush(out).isUnderflow();
+    }
+    int read = out.position() - offset;
+    return read == 0 && flushed ? -1 : read;
+  }
+
+  /**
+   * Stops reading the mapping
+   */
+  @Override
+  public void close() {
+    bytes.position(bytes.limit());
+    flushed = true;
+  }
+}
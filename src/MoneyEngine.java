@@ -0,0 +1,69 @@
+//////////////// FILE HEADER (INCLUDE IN EVERY FILE) //////////////////////////
+//
+// Title: MoneyEngine.java
+///////////////////////////////////////////////////////////////////////////////
+
+/**
+ * This class contains the fixed-point money computations used to check out carts. Amounts are
+ * exact numbers of cents stored in long values. A cart is priced line by line: the total of a line
+ * is its unit price times its quantity, and the sales tax is rounded once on the subtotal of the
+ * whole order, never per unit.
+ *
+ * @author Marin Suzuki
+ */
+public class MoneyEngine {
+
+  static final double TAX_RATE = 0.05; // sales tax
+
+  // sales tax rate in basis points (1/100 of 1%)
+  static final long TAX_RATE_BASIS_POINTS = Math.round(TAX_RATE * 10000);
+
+  /**
+   * Returns the sum of the line totals unitCents[i] * quantities[i] of the first lines lines. The
+   * loop has no branch and no dependency between lines other than the sum, so the JIT compiler can
+   * vectorize it.
+   *
+   * @param unitCents  unit price in cents of each line
+   * @param quantities quantity of each line
+   * @param lines      number of lines
+   * @return the subtotal in cents of the lines
+   */
+  public static long subtotalCents(long[] unitCents, int[] quantities, int lines) {
+    long subtotal = 0;
+    for (int i = 0; i < lines; i++) {
+      subtotal += unitCents[i] * quantities[i];
+    }
+    return subtotal;
+  }
+
+  /**
+   * Returns the sales tax in cents due on a given subtotal, rounded once to the nearest cent (half
+   * up)
+   *
+   * @param subtotalCents amount before tax in cents, not negative
+   * @return the sales tax in cents
+   */
+  public static long taxCents(long subtotalCents) {
+    return (subtotalCents * TAX_RATE_BASIS_POINTS + 5000) / 10000;
+  }
+
+  /**
+   * Returns the total in cents due on a given subtotal, accounting taxes
+   *
+   * @param subtotalCents amount before tax in cents, not negative
+   * @return the subtotal plus its sales tax, in cents
+   */
+  public static long totalCents(long subtotalCents) {
+    return subtotalCents + taxCents(subtotalCents);
+  }
+
+  /**
+   * Returns a String representation of an amount in dollars, with two decimals
+   *
+   * @param cents amount in cents, not negative
+   * @return "$x.yy"
+   */
+  public static String format(long cents) {
+    return "$" + cents / 100 + "." + (cents % 100 < 10 ? "0" : "") + cents % 100;
+  }
+}
@@ -0,0 +1,350 @@
+//////////////// FILE HEADER (INCLUDE IN EVERY FILE) //////////////////////////
+//
+// Title: ShoppingCart.java
+///////////////////////////////////////////////////////////////////////////////
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.zip.DataFormatException;
+
+/**
+ * This class is a shopping cart which stores, for each market item it contains, the number of
+ * units of that item. Items are keyed by their SKU, the row of the item in the market catalog, so
+ * adding, removing, counting and checking an item take constant time whatever the number of units
+ * in the cart. Items are kept in the order in which they were first added.
+ *
+ * The cart also keeps its subtotal up to date as items are added and removed, so reading the
+ * subtotal, tax or total takes constant time. Amounts are exact numbers of cents. When the prices
+ * of the catalog change (a new price epoch), the cart is repriced once, on the next operation.
+ *
+ * Unlike the oversize String[] carts, a ShoppingCart never gets full: its map grows as new items
+ * are added, and is released as soon as the cart becomes empty, so an idle empty cart only costs
+ * the object itself.
+ *
+ * The fromArray() and toArray() adapters convert from and to the oversize String[] carts used by
+ * the static methods of ExceptionalShoppingCart. A ShoppingCart is not thread-safe.
+ *
+ * @author Marin Suzuki
+ */
+public class ShoppingCart {
+
+  // number of units of each item in the cart, keyed by the catalog row of the item, or null while
+  // the cart is empty
+  private LinkedHashMap<Integer, Integer> quantities;
+
+  private int size; // number of units in the cart
+
+  private long subtotalCents; // price of all the units in the cart, before tax
+  private long pricedEpoch; // price epoch of the catalog used to compute subtotalCents
+
+  /**
+   * Returns the current catalog, after repricing this cart if the catalog prices changed since it
+   * was last priced
+   *
+   * @return the current catalog snapshot
+   */
+  private CatalogSnapshot pricedCatalog() {
+    CatalogSnapshot catalog = ExceptionalShoppingCart.getMarketCatalog();
+    if (catalog.getPriceEpoch() != pricedEpoch && quantities != null) {
+      long[] unitCents = new long[quantities.size()];
+      int[] lineQuantities = new int[quantities.size()];
+      int lines = 0;
+      for (Map.Entry<Integer, Integer> line : quantities.entrySet()) {
+        unitCents[lines] = catalog.getPriceCents(line.getKey());
+        lineQuantities[lines] = line.getValue();
+        lines++;
+      }
+      subtotalCents = MoneyEngine.subtotalCents(unitCents, lineQuantities, lines);
+    }
+    pricedEpoch = catalog.getPriceEpoch();
+    return catalog;
+  }
+
+  /**
+   * Returns the SKU (catalog row) of the market item with the given name. If the item is not in
+   * the market, IllegalArgumentException will be thrown.
+   *
+   * @param item the name of the item
+   * @return the SKU of the item
+   * @throws java.lang.IllegalArgumentException with descriptive error message if item is not found
+   *                                            in the market
+   */
+  private static int skuOf(String item) {
+    int sku = ExceptionalShoppingCart.getMarketCatalog().rowOfName(item);
+    if (sku < 0) {
+      throw new IllegalArgumentException("No matched name of item found in market");
+    }
+    return sku;
+  }
+
+  /**
+   * Adds one unit of a given item to this cart. If item is not found in the market,
+   * IllegalArgumentException will be thrown. If the cart already holds Integer.MAX_VALUE units,
+   * IllegalStateException will be thrown.
+   *
+   * @param item the name of the product to be added to the cart
+   * @return the number of units in the cart after adding item
+   * @throws java.lang.IllegalArgumentException with descriptive error message if item is not found
+   *                                            in the market
+   * @throws java.lang.IllegalStateException    with descriptive error message if this cart is full
+   */
+  public int addItem(String item) {
+    return addItems(item, 1);
+  }
+
+  /**
+   * Adds quantity units of a given item to this cart in one batch. If quantity is less than one
+   * or item is not found in the market, IllegalArgumentException will be thrown and the cart is
+   * left unchanged. If the cart would hold more than Integer.MAX_VALUE units,
+   * IllegalStateException will be thrown and the cart is left unchanged.
+   *
+   * @param item     the name of the product to be added to the cart
+   * @param quantity the number of units of item to add
+   * @return the number of units in the cart after adding the units
+   * @throws java.lang.IllegalArgumentException with descriptive error message if quantity is less
+   *                                            than one or item is not found in the market
+   * @throws java.lang.IllegalStateException    with descriptive error message if this cart cannot
+   *                                            hold quantity more units
+   */
+  public int addItems(String item, int quantity) {
+    // throws IllegalArgumentException with descriptive error message if quantity is less than one
+    if (quantity < 1) {
+      throw new IllegalArgumentException("quantity should be more than zero");
+    }
+
+    int sku = skuOf(item);
+
+    // throws IllegalStateException with descriptive error message if the units would overflow the
+    // size of the cart, which bounds the units of each item
+    if (quantity > Integer.MAX_VALUE - size) {
+      throw new IllegalStateException("the cart is already full");
+    }
+
+    CatalogSnapshot catalog = pricedCatalog();
+    if (quantities == null) {
+      quantities = new LinkedHashMap<Integer, Integer>();
+    }
+    quantities.merge(sku, quantity, Integer::sum);
+    subtotalCents += catalog.getPriceCents(sku) * quantity;
+    size += quantity;
+    return size;
+  }
+
+  /**
+   * Removes one unit of a given item from this cart. If item is not found in the cart,
+   * NoSuchElementException will be thrown.
+   *
+   * @param item the name of the item to remove
+   * @return the number of units in the cart after removing item
+   * @throws java.util.NoSuchElementException with descriptive error message if item not found in
+   *                                          the cart
+   */
+  public int removeItem(String item) {
+    return removeItems(item, 1);
+  }
+
+  /**
+   * Removes quantity units of a given item from this cart in one batch. If quantity is less than
+   * one, IllegalArgumentException will be thrown. If the cart holds fewer than quantity units of
+   * item, NoSuchElementException will be thrown and the cart is left unchanged.
+   *
+   * @param item     the name of the item to remove
+   * @param quantity the number of units of item to remove
+   * @return the number of units in the cart after removing the units
+   * @throws java.lang.IllegalArgumentException with descriptive error message if quantity is less
+   *                                            than one
+   * @throws java.util.NoSuchElementException   with descriptive error message if fewer than
+   *                                            quantity units of item are in the cart
+   */
+  public int removeItems(String item, int quantity) {
+    // throws IllegalArgumentException with descriptive error message if quantity is less than one
+    if (quantity < 1) {
+      throw new IllegalArgumentException("quantity should be more than zero");
+    }
+
+    int sku = ExceptionalShoppingCart.getMarketCatalog().rowOfName(item);
+    Integer current = sku < 0 || quantities == null ? null : quantities.get(sku);
+
+    // throws NoSuchElementException with descriptive error message if item not found in the cart
+    if (current == null || current < quantity) {
+      throw new NoSuchElementException("item was not found in the cart");
+    }
+
+    CatalogSnapshot catalog = pricedCatalog();
+    if (current == quantity) {
+      quantities.remove(sku);
+    } else {
+      quantities.put(sku, current - quantity);
+    }
+    subtotalCents -= catalog.getPriceCents(sku) * quantity;
+    size -= quantity;
+    if (size == 0) {
+      emptyCart(); // releases the map
+    }
+    return size;
+  }
+
+  /**
+   * Returns the number of units of a given item within this cart
+   *
+   * @param item the name of the item to search
+   * @return the number of units of item in this cart, zero if it is not in the cart
+   */
+  public int nbOccurrences(String item) {
+    int sku = ExceptionalShoppingCart.getMarketCatalog().rowOfName(item);
+    Integer quantity = sku < 0 || quantities == null ? null : quantities.get(sku);
+    return quantity == null ? 0 : quantity;
+  }
+
+  /**
+   * Checks whether this cart contains at least one unit of a given item
+   *
+   * @param item the name of the item to search
+   * @return true if item is in this cart, and false otherwise
+   */
+  public boolean contains(String item) {
+    return nbOccurrences(item) > 0;
+  }
+
+  /**
+   * Removes all items from this cart and releases the memory they used
+   *
+   * @return the number of units in the cart after removing all its items, which is zero
+   */
+  public int emptyCart() {
+    quantities = null;
+    size = 0;
+    subtotalCents = 0;
+    return size;
+  }
+
+  /**
+   * Parses one line of cart summary and adds its units to this cart, with the same format and
+   * rules as ExceptionalShoppingCart.parseCartSummaryLine(): "( " + nbOccurrences + " ) " +
+   * itemName, where nbOccurrences is a positive integer less or equal to 10.
+   *
+   * @param line a line of the cart summary to be parsed into one item to be added
+   * @return the number of units in the cart after adding the parsed units
+   * @throws DataFormatException      with descriptive error message if wrong formatting
+   * @throws IllegalArgumentException with descriptive error message if itemName not found in the
+   *                                  market
+   */
+  public int parseCartSummaryLine(String line) throws DataFormatException {
+    String[] units = new String[10];
+    int count = ExceptionalShoppingCart.parseCartSummaryLine(line, units, 0);
+    if (count > 0) {
+      addItems(units[0], count);
+    }
+    return size;
+  }
+
+  /**
+   * Returns the price in cents of all the units in this cart, before tax
+   *
+   * @return the subtotal of this cart in cents
+   */
+  public long getSubtotalCents() {
+    pricedCatalog();
+    return subtotalCents;
+  }
+
+  /**
+   * Returns the sales tax in cents due on this cart, rounded once on the subtotal
+   *
+   * @return the sales tax of this cart in cents
+   */
+  public long getTaxCents() {
+    return MoneyEngine.taxCents(getSubtotalCents());
+  }
+
+  /**
+   * Returns the total value in cents of this cart accounting taxes
+   *
+   * @return the total of this cart in cents
+   */
+  public long getTotalCents() {
+    return MoneyEngine.totalCents(getSubtotalCents());
+  }
+
+  /**
+   * Returns the total value in dollars of this cart accounting taxes
+   *
+   * @return the total of this cart in dollars
+   */
+  public double checkout() {
+    return getTotalCents() / 100.0;
+  }
+
+  /**
+   * Returns the number of units in this cart
+   *
+   * @return the number of units in this cart
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the number of distinct items in this cart
+   *
+   * @return the number of distinct items in this cart
+   */
+  public int nbDistinctItems() {
+    return quantities == null ? 0 : quantities.size();
+  }
+
+  /**
+   * Creates a cart holding the items of an oversize String[] cart. If size is less than zero,
+   * IllegalArgumentException will be thrown, as well as if an item is not found in the market.
+   *
+   * @param cart an array of strings which contains the names of items in the cart
+   * @param size the number of items in the cart
+   * @return a new cart holding the same items
+   * @throws java.lang.IllegalArgumentException with descriptive error message if size is less than
+   *                                            zero or an item is not found in the market
+   */
+  public static ShoppingCart fromArray(String[] cart, int size) {
+    // throws IllegalArgumentException with descriptive error message if size is less than zero
+    if (size < 0) {
+      throw new IllegalArgumentException("size should be more than or equal to zero");
+    }
+
+    ShoppingCart shoppingCart = new ShoppingCart();
+    for (int i = 0; i < size; i++) {
+      shoppingCart.addItem(cart[i]);
+    }
+    return shoppingCart;
+  }
+
+  /**
+   * Copies the items of this cart into an oversize String[] cart, one element per unit, items in
+   * the order in which they were first added. The remaining elements of the array are set to null.
+   * If the array is too small, IllegalStateException will be thrown.
+   *
+   * @param cart an array of strings to hold the names of the items of this cart
+   * @return the size of the oversize array cart
+   * @throws java.lang.IllegalStateException with descriptive error message if cart is too small
+   */
+  public int toArray(String[] cart) {
+    // throws IllegalStateException with descriptive error message if cart is too small
+    if (cart.length < size) {
+      throw new IllegalStateException("the cart is already full");
+    }
+
+    CatalogSnapshot catalog = ExceptionalShoppingCart.getMarketCatalog();
+    int next = 0;
+    if (quantities != null) {
+      for (Map.Entry<Integer, Integer> line : quantities.entrySet()) {
+        String name = catalog.getName(line.getKey());
+        for (int i = 0; i < line.getValue(); i++) {
+          cart[next++] = name;
+        }
+      }
+    }
+    for (int i = next; i < cart.length; i++) {
+      cart[i] = null;
+    }
+    return next;
+  }
+}
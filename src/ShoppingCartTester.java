@@ -0,0 +1,268 @@
+//////////////// FILE HEADER (INCLUDE IN EVERY FILE) //////////////////////////
+//
+// Title: ShoppingCartTester.java
+///////////////////////////////////////////////////////////////////////////////
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * This class contains testers for the ShoppingCart class.
+ *
+ * @author Marin Suzuki
+ */
+public class ShoppingCartTester {
+
+  /**
+   * Main method
+   *
+   * @param args input arguments if any
+   */
+  public static void main(String[] args) {
+    System.out.println(testAddAndRemoveItem());
+    System.out.println(testArrayAdapters());
+    System.out.println(testTotals());
+    System.out.println(testGrowAndShrink());
+    System.out.println(testBatchItems());
+    System.out.println(runAllTests());
+  }
+
+  /**
+   * This method tests addItem(), removeItem(), nbOccurrences(), contains() and emptyCart()
+   *
+   * @return true if all tests pass, and false if any of your tests fails.
+   *
+   */
+  public static boolean testAddAndRemoveItem() {
+    ShoppingCart cart = new ShoppingCart();
+
+    try {
+      // valid input
+      cart.addItem("Apple");
+      cart.addItem("Milk");
+      if (cart.addItem("Apple") != 3 || cart.nbOccurrences("Apple") != 2
+          || cart.nbOccurrences("Milk") != 1 || cart.nbDistinctItems() != 2) {
+        return false; // incorrect
+      }
+      if (!cart.contains("Milk") || cart.contains("Pizza") || cart.contains("not existing name")) {
+        return false; // incorrect
+      }
+      if (cart.removeItem("Milk") != 2 || cart.contains("Milk") || cart.nbDistinctItems() != 1) {
+        return false; // incorrect
+      }
+    } catch (Exception e) {
+      System.out.println(e.getMessage());
+      return false; // incorrect
+    }
+
+    try {
+      cart.addItem("not existing name"); // invalid input: item not in the market
+      return false; // incorrect
+    } catch (IllegalArgumentException e) {
+      System.out.println(e.getMessage()); // correct
+    } catch (Exception e) {
+      return false; // incorrect
+    }
+
+    try {
+      cart.removeItem("Milk"); // invalid input: item not in the cart
+      return false; // incorrect
+    } catch (NoSuchElementException e) {
+      System.out.println(e.getMessage()); // correct
+    } catch (Exception e) {
+      return false; // incorrect
+    }
+
+    if (cart.emptyCart() != 0 || cart.size() != 0 || cart.contains("Apple")) {
+      return false; // incorrect
+    }
+
+    return true; // no bug detected
+  }
+
+  /**
+   * This method tests fromArray() and toArray()
+   *
+   * @return true if all tests pass, and false if any of your tests fails.
+   *
+   */
+  public static boolean testArrayAdapters() {
+    try {
+      // valid input: units are grouped by item, in the order items were first added
+      String[] array = {"Milk", "Eggs", "Milk", "Banana", null};
+      ShoppingCart cart = ShoppingCart.fromArray(array, 4);
+      if (cart.size() != 4 || cart.nbOccurrences("Milk") != 2) {
+        return false; // incorrect
+      }
+      String[] copy = new String[6];
+      String[] expected = {"Milk", "Milk", "Eggs", "Banana", null, null};
+      if (cart.toArray(copy) != 4 || !Arrays.equals(copy, expected)) {
+        return false; // incorrect
+      }
+    } catch (Exception e) {
+      System.out.println(e.getMessage());
+      return false; // incorrect
+    }
+
+    try {
+      ShoppingCart.fromArray(new String[] {"Milk"}, 1).toArray(new String[0]); // invalid input
+      return false; // incorrect
+    } catch (IllegalStateException e) {
+      System.out.println(e.getMessage()); // correct
+    } catch (Exception e) {
+      return false; // incorrect
+    }
+
+    return true; // no bug detected
+  }
+
+  /**
+   * This method tests that getSubtotalCents(), getTaxCents() and getTotalCents() follow addItem(),
+   * removeItem(), emptyCart(), parseCartSummaryLine() and price changes
+   *
+   * @return true if all tests pass, and false if any of your tests fails.
+   *
+   */
+  public static boolean testTotals() {
+    try {
+      ShoppingCart cart = new ShoppingCart();
+      cart.addItem("Pizza"); // $11.5
+      cart.addItem("Apple"); // $1.59
+      cart.addItem("Apple");
+      if (cart.getSubtotalCents() != 1468 || cart.getTaxCents() != 73
+          || cart.getTotalCents() != 1541) {
+        return false; // incorrect
+      }
+
+      cart.removeItem("Pizza");
+      if (cart.getSubtotalCents() != 318 || cart.getTotalCents() != 334) { // tax 15.9 cents
+        return false; // incorrect
+      }
+
+      cart.parseCartSummaryLine("( 3 ) Banana"); // $0.49
+      if (cart.size() != 5 || cart.getSubtotalCents() != 465 || cart.checkout() != 4.88) {
+        return false; // incorrect
+      }
+
+      // the cart is repriced when prices change
+      ExceptionalShoppingCart.addItemToMarketCatalog("7006", "Totaled", "$2.00");
+      cart.addItem("Totaled");
+      ExceptionalShoppingCart.updateProductPrices(new int[] {7006}, new String[] {"$3.00"});
+      if (cart.getSubtotalCents() != 765) {
+        return false; // incorrect
+      }
+
+      if (cart.emptyCart() != 0 || cart.getTotalCents() != 0) {
+        return false; // incorrect
+      }
+    } catch (Exception e) {
+      System.out.println(e.getMessage());
+      return false; // incorrect
+    }
+
+    return true; // no bug detected
+  }
+
+  /**
+   * This method tests that a cart never gets full and can be reused once emptied
+   *
+   * @return true if all tests pass, and false if any of your tests fails.
+   *
+   */
+  public static boolean testGrowAndShrink() {
+    try {
+      ShoppingCart cart = new ShoppingCart();
+      String[] items = {"Apple", "Milk", "Eggs", "Onion", "Pizza"};
+      for (int i = 0; i < 1000; i++) {
+        cart.addItem(items[i % items.length]);
+      }
+      if (cart.size() != 1000 || cart.nbDistinctItems() != 5 || cart.nbOccurrences("Milk") != 200) {
+        return false; // incorrect
+      }
+
+      // removing the last unit empties the cart
+      for (int i = 0; i < 1000; i++) {
+        cart.removeItem(items[i % items.length]);
+      }
+      if (cart.size() != 0 || cart.nbDistinctItems() != 0 || cart.contains("Milk")
+          || cart.getTotalCents() != 0 || cart.toArray(new String[0]) != 0) {
+        return false; // incorrect
+      }
+
+      // an emptied cart can be filled again
+      if (cart.addItem("Milk") != 1 || cart.getSubtotalCents() != 209) {
+        return false; // incorrect
+      }
+    } catch (Exception e) {
+      System.out.println(e.getMessage());
+      return false; // incorrect
+    }
+
+    return true; // no bug detected
+  }
+
+  /**
+   * This method tests addItems() and removeItems()
+   *
+   * @return true if all tests pass, and false if any of your tests fails.
+   *
+   */
+  public static boolean testBatchItems() {
+    ShoppingCart cart = new ShoppingCart();
+
+    try {
+      // valid input
+      if (cart.addItems("Pizza", 4) != 4 || cart.getSubtotalCents() != 4600
+          || cart.removeItems("Pizza", 3) != 1 || cart.getSubtotalCents() != 1150) {
+        return false; // incorrect
+      }
+    } catch (Exception e) {
+      System.out.println(e.getMessage());
+      return false; // incorrect
+    }
+
+    try {
+      cart.removeItems("Pizza", 2); // invalid input: only one Pizza in the cart
+      return false; // incorrect
+    } catch (NoSuchElementException e) {
+      System.out.println(e.getMessage()); // correct
+    } catch (Exception e) {
+      return false; // incorrect
+    }
+
+    try {
+      cart.addItems("Pizza", 0); // invalid input
+      return false; // incorrect
+    } catch (IllegalArgumentException e) {
+      System.out.println(e.getMessage()); // correct
+    } catch (Exception e) {
+      return false; // incorrect
+    }
+
+    try {
+      cart.addItems("Pizza", Integer.MAX_VALUE); // invalid input: more units than a cart can hold
+      return false; // incorrect
+    } catch (IllegalStateException e) {
+      System.out.println(e.getMessage()); // correct
+    } catch (Exception e) {
+      return false; // incorrect
+    }
+
+    if (cart.size() != 1 || cart.getSubtotalCents() != 1150) { // invalid batches are not applied
+      return false; // incorrect
+    }
+
+    return true; // no bug detected
+  }
+
+  /**
+   * This method call all the tester methods.
+   *
+   * @return true if all tests pass, and false if any of your tests fails.
+   *
+   */
+  public static boolean runAllTests() {
+    return testAddAndRemoveItem() && testArrayAdapters() && testTotals() && testGrowAndShrink()
+        && testBatchItems();
+  }
+}